@@ -16,10 +16,20 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Where the Firestore emulator is reached from the Android emulator (the host's loopback)
+        buildConfigField("String", "FIRESTORE_EMULATOR_HOST", "\"10.0.2.2\"")
+        buildConfigField("int", "FIRESTORE_EMULATOR_PORT", "8080")
     }
 
     buildTypes {
+        debug {
+            // ./gradlew installDebug -PuseFirestoreEmulator=true points the app at a local Firestore emulator
+            buildConfigField("boolean", "USE_FIRESTORE_EMULATOR",
+                (project.findProperty("useFirestoreEmulator") ?: "false").toString())
+        }
         release {
+            buildConfigField("boolean", "USE_FIRESTORE_EMULATOR", "false")
             isMinifyEnabled = false
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
@@ -33,6 +43,7 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 }
 
@@ -0,0 +1,135 @@
+package com.example.app.Data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.app.Model.TableTennisProduct;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the catalog mirror against the device's SQLite. The mirror is rebuilt on the next
+ * sync, so the app's own copy is simply replaced.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogDatabaseTest {
+    private CatalogDatabase database;
+
+    @Before
+    public void openEmpty() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase("catalog.db");
+        database = new CatalogDatabase(context);
+    }
+
+    @After
+    public void close() {
+        database.close();
+    }
+
+    @Test
+    public void categoryPagesContinueAfterTheLastId() {
+        List<TableTennisProduct> products = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            products.add(product(String.format("p%02d", i), "Blade " + i, i % 2 == 0 ? "Blades" : "rubbers", i));
+        }
+        database.startDownload();
+        database.applyChanges(products, Collections.emptyList());
+
+        List<String> ids = new ArrayList<>();
+        String afterId = null;
+        List<TableTennisProduct> page;
+        do {
+            page = database.getCategoryPage("blades", afterId, 5);
+            for (TableTennisProduct product : page) ids.add(product.getId());
+            if (!page.isEmpty()) afterId = page.get(page.size() - 1).getId();
+        } while (page.size() == 5);
+
+        assertEquals(13, ids.size());
+        assertEquals("p00", ids.get(0));
+        assertEquals("p24", ids.get(12));
+        assertEquals(ids, idsOf(database.getProductsInCategory("BLADES")));
+    }
+
+    @Test
+    public void searchMatchesWordPrefixesMostViewedFirst() {
+        database.startDownload();
+        database.applyChanges(Arrays.asList(
+                product("a", "Butterfly Viscaria", "blades", 10),
+                product("b", "Butterfly Tenergy 05", "rubbers", 50),
+                product("c", "Stiga Balls", "balls", 99)), Collections.emptyList());
+
+        assertEquals(Arrays.asList("b", "a"), idsOf(database.search("butter", 10)));
+        assertEquals(Arrays.asList("c"), idsOf(database.search("ball", 10)));
+        assertEquals(Arrays.asList("b"), idsOf(database.search("butterfly tenergy", 10)));
+        assertEquals(Arrays.asList("b"), idsOf(database.search("butter", 1)));
+        assertEquals(Arrays.asList("Butterfly Tenergy 05", "Butterfly Viscaria"), database.suggest("butt", 5));
+    }
+
+    @Test
+    public void finishedDownloadDropsProductsItDidNotSee() {
+        database.startDownload();
+        database.applyChanges(Arrays.asList(product("a", "Old", "blades", 1), product("b", "Kept", "blades", 1)),
+                Collections.emptyList());
+        database.finishDownload(100, 50);
+
+        database.startDownload();
+        database.applyChanges(Collections.singletonList(product("b", "Renamed", "blades", 1)),
+                Collections.emptyList());
+        database.finishDownload(200, 60);
+
+        assertNull(database.getProduct("a"));
+        assertEquals("Renamed", database.getProduct("b").getName());
+        assertTrue(database.search("old", 10).isEmpty());
+        assertEquals(200, database.getSyncedThrough());
+        assertEquals(60, database.getViewsSyncedThrough());
+    }
+
+    @Test
+    public void deltaChangesAndViewsApplyInPlace() {
+        database.startDownload();
+        database.applyChanges(Arrays.asList(product("a", "Blade", "blades", 1), product("b", "Rubber", "rubbers", 2)),
+                Collections.emptyList());
+        database.finishDownload(100, 0);
+
+        database.applyChanges(Collections.emptyList(), Collections.singletonList("b"));
+        database.setViews(Collections.singletonMap("a", 40), 300);
+
+        assertEquals(1, database.count());
+        assertEquals(40, database.getProduct("a").getViews());
+        assertEquals(Arrays.asList("a"), idsOf(database.getTopViewed(5)));
+        assertEquals(300, database.getViewsSyncedThrough());
+    }
+
+    private static TableTennisProduct product(String id, String name, String category, int views) {
+        TableTennisProduct product = new TableTennisProduct();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription("Description of " + name);
+        product.setPrice(10 + views);
+        product.setCategoryID(category);
+        product.setTags(Collections.singletonList(category));
+        product.setViews(views);
+        return product;
+    }
+
+    private static List<String> idsOf(List<TableTennisProduct> products) {
+        List<String> ids = new ArrayList<>();
+        for (TableTennisProduct product : products) ids.add(product.getId());
+        return ids;
+    }
+}
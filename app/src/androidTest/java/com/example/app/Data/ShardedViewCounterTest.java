@@ -0,0 +1,142 @@
+package com.example.app.Data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.app.BuildConfig;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the view roll-up against a local Firestore emulator; see the README for how.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ShardedViewCounterTest {
+    private static final String TAG = "ShardedViewCounterTest";
+
+    private FirebaseFirestore db;
+    private DocumentReference product;
+    private ShardedViewCounter counter;
+
+    @Before
+    public void seedProduct() throws Exception {
+        assumeTrue("Needs -PuseFirestoreEmulator=true", BuildConfig.USE_FIRESTORE_EMULATOR);
+        db = FirestoreProvider.get();
+        counter = new ShardedViewCounter(db, new TopViewedLeaderboard(db));
+        product = db.collection("products").document("view-counter-test");
+        for (int i = 0; i < ShardedViewCounter.SHARDS; i++) {
+            Tasks.await(product.collection("viewShards").document(String.valueOf(i)).delete());
+        }
+        // Roll up what earlier runs left behind, so each test starts from a current watermark
+        Tasks.await(counter.rollUpChanged());
+
+        // Counted directly on the product, before sharding
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("name", "View counter test");
+        fields.put("views", 5);
+        Tasks.await(product.set(fields));
+    }
+
+    @Test
+    public void rollUpAddsShardViewsWithoutTouchingUpdatedAt() throws Exception {
+        addViews(3);
+        addViews(4);
+        Tasks.await(counter.rollUpChanged());
+
+        DocumentSnapshot rolledUp = Tasks.await(product.get());
+        assertEquals(Long.valueOf(12), rolledUp.getLong("views"));
+        assertNotNull(rolledUp.getDate("viewsUpdatedAt"));
+        assertNull(rolledUp.getDate("updatedAt"));
+
+        addViews(2);
+        Tasks.await(counter.rollUpChanged());
+        assertEquals(Long.valueOf(14), Tasks.await(product.get()).getLong("views"));
+    }
+
+    @Test
+    public void directIncrementsBetweenRollUpsAreKept() throws Exception {
+        addViews(3);
+        Tasks.await(counter.rollUpChanged());
+
+        // An older client still increments the product itself
+        Tasks.await(product.update("views", FieldValue.increment(10)));
+        addViews(2);
+        Tasks.await(counter.rollUpChanged());
+        assertEquals(Long.valueOf(20), Tasks.await(product.get()).getLong("views"));
+    }
+
+    @Test
+    public void rollUpWithoutNewViewsLeavesProductsAlone() throws Exception {
+        addViews(1);
+        Tasks.await(counter.rollUpChanged());
+        Date viewsUpdatedAt = Tasks.await(product.get()).getDate("viewsUpdatedAt");
+
+        Tasks.await(counter.rollUpChanged());
+        DocumentSnapshot again = Tasks.await(product.get());
+        assertEquals(Long.valueOf(6), again.getLong("views"));
+        assertEquals(viewsUpdatedAt, again.getDate("viewsUpdatedAt"));
+    }
+
+    @Test
+    public void overlappingRunsCountEachViewOnce() throws Exception {
+        addViews(7);
+        Task<Void> first = counter.rollUpChanged();
+        Task<Void> second = new ShardedViewCounter(db, new TopViewedLeaderboard(db)).rollUpChanged();
+        Tasks.await(Tasks.whenAll(first, second));
+        assertEquals(Long.valueOf(12), Tasks.await(product.get()).getLong("views"));
+    }
+
+    // Many clients flushing views for one product at once, then one roll-up of it all.
+    // The timings are logged for comparison between changes; only the totals are asserted.
+    @Test
+    public void throughputOfConcurrentFlushesAndRollUp() throws Exception {
+        int clients = 50;
+        int flushesPerClient = 20;
+
+        long start = SystemClock.elapsedRealtime();
+        List<Task<Void>> flushes = new ArrayList<>();
+        for (int i = 0; i < clients * flushesPerClient; i++) {
+            WriteBatch batch = db.batch();
+            counter.addTo(batch, product.getId(), 1);
+            flushes.add(batch.commit());
+        }
+        Tasks.await(Tasks.whenAll(flushes));
+        long written = SystemClock.elapsedRealtime();
+
+        Tasks.await(counter.rollUpChanged());
+        long rolledUp = SystemClock.elapsedRealtime();
+
+        int views = clients * flushesPerClient;
+        Log.i(TAG, views + " single-view flushes in " + (written - start) + " ms ("
+                + (views * 1000L / Math.max(1, written - start)) + "/s), roll-up in " + (rolledUp - written) + " ms");
+        assertEquals(Long.valueOf(5 + views), Tasks.await(product.get()).getLong("views"));
+    }
+
+    private void addViews(int views) throws Exception {
+        WriteBatch batch = db.batch();
+        counter.addTo(batch, product.getId(), views);
+        Tasks.await(batch.commit());
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.app.Data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.app.BuildConfig;
+import com.example.app.Model.TableTennisProduct;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the leaderboard against a local Firestore emulator; see the README for how.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TopViewedLeaderboardTest {
+    private static final int PRODUCTS = 30;
+
+    private FirebaseFirestore db;
+    private DocumentReference board;
+    private ShardedViewCounter counter;
+
+    @Before
+    public void seedProducts() throws Exception {
+        assumeTrue("Needs -PuseFirestoreEmulator=true", BuildConfig.USE_FIRESTORE_EMULATOR);
+        db = FirestoreProvider.get();
+        board = db.collection("leaderboards").document("topViewed");
+        counter = new ShardedViewCounter(db, new TopViewedLeaderboard(db));
+        Tasks.await(counter.rollUpChanged()); // Views left over from earlier runs
+        Tasks.await(board.delete());
+
+        // Far more views than anything else in the emulator, the most viewed one deleted
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Map<String, Object> product = new HashMap<>();
+            product.put("name", "Product " + i);
+            product.put("description", "Description " + i);
+            product.put("price", 10.0 + i);
+            product.put("categoryID", "blades");
+            product.put("tags", Arrays.asList("blades"));
+            product.put("views", 1_000_000 + i);
+            product.put("imageUrls", Arrays.asList("https://example.com/" + i + ".png", "https://example.com/more.png"));
+            product.put("deleted", i == PRODUCTS - 1);
+            batch.set(product(i), product);
+        }
+        Tasks.await(batch.commit());
+    }
+
+    @Test
+    public void missingBoardIsRankedOnceAndSavedCompact() throws Exception {
+        List<TableTennisProduct> top = getTop(new TopViewedLeaderboard(db), 5);
+
+        assertEquals(5, top.size());
+        assertEquals("leaderboard-test-28", top.get(0).getId());
+        assertEquals("leaderboard-test-24", top.get(4).getId());
+        assertEquals(Arrays.asList("https://example.com/28.png"), top.get(0).getImageUrls());
+        assertTrue(top.get(0).isSummary());
+        assertNull(top.get(0).getDescription());
+
+        DocumentSnapshot saved = awaitBoard();
+        assertEquals(Long.valueOf(3), saved.getLong("format"));
+        List<?> entries = (List<?>) saved.get("entries");
+        assertEquals(TopViewedLeaderboard.SIZE, entries.size());
+        assertEquals(new HashSet<>(Arrays.asList("id", "name", "price", "thumbnailUrl", "views")),
+                ((Map<?, ?>) entries.get(0)).keySet());
+    }
+
+    @Test
+    public void rollUpMovesProductsOnTheBoard() throws Exception {
+        getTop(new TopViewedLeaderboard(db), 5);
+        awaitBoard();
+
+        addViews(3, 2_000_000);
+        Tasks.await(counter.rollUpChanged());
+
+        List<TableTennisProduct> top = getTop(new TopViewedLeaderboard(db), 2);
+        assertEquals("leaderboard-test-3", top.get(0).getId());
+        assertEquals(3_000_003, top.get(0).getViews());
+        assertEquals("leaderboard-test-28", top.get(1).getId());
+    }
+
+    @Test
+    public void deletedProductsDropOffWithTheNextRollUp() throws Exception {
+        getTop(new TopViewedLeaderboard(db), 5);
+        awaitBoard();
+
+        Tasks.await(product(28).update("deleted", true));
+        addViews(2, 1);
+        Tasks.await(counter.rollUpChanged());
+
+        List<String> ids = new ArrayList<>();
+        for (TableTennisProduct product : getTop(new TopViewedLeaderboard(db), TopViewedLeaderboard.SIZE)) {
+            ids.add(product.getId());
+        }
+        assertFalse(ids.contains("leaderboard-test-28"));
+        assertEquals("leaderboard-test-27", ids.get(0));
+    }
+
+    private DocumentReference product(int i) {
+        return db.collection("products").document("leaderboard-test-" + i);
+    }
+
+    private void addViews(int product, int views) throws Exception {
+        WriteBatch batch = db.batch();
+        counter.addTo(batch, product(product).getId(), views);
+        Tasks.await(batch.commit());
+    }
+
+    // getTop keeps its cache on the main thread, so it is called from there
+    private static List<TableTennisProduct> getTop(TopViewedLeaderboard leaderboard, int limit)
+            throws InterruptedException {
+        List<TableTennisProduct> top = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                leaderboard.getTop(limit, new FirestoreRepository.ProductsCallback() {
+                    @Override
+                    public void onSuccess(List<TableTennisProduct> products) {
+                        top.addAll(products);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        done.countDown();
+                    }
+                }));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return top;
+    }
+
+    // The board is saved after the caller has its products
+    private DocumentSnapshot awaitBoard() throws Exception {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            DocumentSnapshot snapshot = Tasks.await(board.get());
+            if (snapshot.exists()) return snapshot;
+            Thread.sleep(100);
+        }
+        fail("Board was never saved");
+        return null;
+    }
+}
@@ -13,6 +13,7 @@ import androidx.annotation.NonNull;
 
 import com.example.app.Model.TableTennisProduct;
 import com.example.app.R;
+import com.example.app.Search.HighlightedText;
 import com.example.app.UI.ProfileActivity;
 import com.example.app.Data.FirestoreRepository;
 import com.example.app.Util.ToastUtils;
@@ -20,8 +21,11 @@ import com.example.app.Util.AnimationUtils;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -33,6 +37,22 @@ public class ProductAdapter extends BaseProductAdapter<ProductAdapter.ViewHolder
     private final Set<String> wishlistIds; // Tracks which products are in the wishlist
     private FirebaseUser user;
 
+    // Rows highlighted per request to the highlighter
+    private static final int HIGHLIGHT_BATCH = 20;
+
+    // Search match text by product ID, empty outside of search
+    private Map<String, HighlightedText> highlights = new HashMap<>();
+    private final Set<String> highlightsRequested = new HashSet<>();
+    private Highlighter highlighter; // Null when rows without highlights stay plain
+
+    /**
+     * Builds highlighted text for rows that do not have it yet, off the main thread,
+     * and hands it back through addHighlights().
+     */
+    public interface Highlighter {
+        void highlight(List<TableTennisProduct> products);
+    }
+
     public ProductAdapter(Context context, List<TableTennisProduct> products) {
         super(context, products);
         this.wishlistIds = new HashSet<>();
@@ -81,6 +101,7 @@ public class ProductAdapter extends BaseProductAdapter<ProductAdapter.ViewHolder
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         TableTennisProduct product = products.get(position);
+        if (highlighter != null) requestHighlights(position);
         bindProductData(holder, product);
         setupWishlistButton(holder, product);
     }
@@ -89,8 +110,14 @@ public class ProductAdapter extends BaseProductAdapter<ProductAdapter.ViewHolder
      * Populates the ViewHolder with product name, description, price, and image.
      */
     private void bindProductData(ViewHolder holder, TableTennisProduct product) {
-        holder.productName.setText(product.getName());
-        holder.productDescription.setText(product.getDescription());
+        HighlightedText highlighted = product.getId() != null ? highlights.get(product.getId()) : null;
+        if (highlighted != null) {
+            holder.productName.setText(highlighted.getName());
+            holder.productDescription.setText(highlighted.getDescription());
+        } else {
+            holder.productName.setText(product.getName());
+            holder.productDescription.setText(product.getDescription());
+        }
         holder.productPrice.setText(String.format("$%.2f", product.getPrice()));
         loadProductImage(holder.productImage, product);
         setupProductClick(holder.itemView, product);
@@ -188,6 +215,45 @@ public class ProductAdapter extends BaseProductAdapter<ProductAdapter.ViewHolder
 
 
 
+    /**
+     * Sets the highlighted name and description to show for each product ID.
+     * Rows missing from it are shown plain, or asked of the highlighter if one is set.
+     */
+    public void setHighlights(Map<String, HighlightedText> highlights) {
+        this.highlights = new HashMap<>(highlights);
+        highlightsRequested.clear();
+    }
+
+    public void setHighlighter(Highlighter highlighter) {
+        this.highlighter = highlighter;
+    }
+
+    /**
+     * Adds highlighted text built on request and redraws the rows it belongs to.
+     */
+    public void addHighlights(Map<String, HighlightedText> added) {
+        highlights.putAll(added);
+        for (int i = 0; i < products.size(); i++) {
+            if (added.containsKey(products.get(i).getId())) notifyItemChanged(i);
+        }
+    }
+
+    // Asks for the row's highlights together with the next rows that lack them
+    private void requestHighlights(int position) {
+        String id = products.get(position).getId();
+        if (id == null || highlights.containsKey(id) || highlightsRequested.contains(id)) return;
+
+        List<TableTennisProduct> batch = new ArrayList<>();
+        for (int i = position; i < products.size() && batch.size() < HIGHLIGHT_BATCH; i++) {
+            TableTennisProduct product = products.get(i);
+            String productId = product.getId();
+            if (productId != null && !highlights.containsKey(productId) && highlightsRequested.add(productId)) {
+                batch.add(product);
+            }
+        }
+        highlighter.highlight(batch);
+    }
+
     /**
      * Replaces the current product list with a new one and refreshes the adapter.
      */
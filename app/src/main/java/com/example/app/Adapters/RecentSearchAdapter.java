@@ -16,12 +16,12 @@ import java.util.List;
 
 /**
  * Adapter for displaying a list of recent search queries below a search bar.
- * Includes functionality to rerun or delete past searches, and caps the list at 10 items.
+ * Includes functionality to rerun or delete past searches. The full history lives in
+ * RecentSearchStore, this only holds the top entries on screen.
  */
 public class RecentSearchAdapter extends RecyclerView.Adapter<RecentSearchAdapter.ViewHolder> {
     private final List<String> searches; // The list of recent search terms
     private final OnSearchClickListener listener; // Listener to handle user interactions
-    private static final int MAX_SEARCHES = 10; // Limit to prevent unlimited growth
 
     // Interface for notifying parent components when a search is clicked or removed
     public interface OnSearchClickListener {
@@ -81,42 +81,6 @@ public class RecentSearchAdapter extends RecyclerView.Adapter<RecentSearchAdapte
         notifyDataSetChanged();
     }
 
-    /**
-     * Returns a copy of the current searches (useful for saving/restoring state).
-     */
-    public List<String> getSearches() {
-        return new ArrayList<>(searches);
-    }
-
-    /**
-     * Adds a new search term to the top of the list.
-     * Moves it to the top if it already exists, and trims the list if it exceeds max size.
-     */
-    public void addSearch(String search) {
-        if (search == null || search.trim().isEmpty()) {
-            return;
-        }
-
-        String trimmedSearch = search.trim();
-        int existingIndex = searches.indexOf(trimmedSearch);
-
-        // If the search is already in the list, remove the old instance
-        if (existingIndex != -1) {
-            searches.remove(existingIndex);
-        }
-
-        // Add to the top of the list
-        searches.add(0, trimmedSearch);
-
-        // If we've exceeded the maximum allowed, remove the oldest
-        if (searches.size() > MAX_SEARCHES) {
-            searches.remove(searches.size() - 1);
-            notifyItemRemoved(searches.size()); // Notify removal of the last item
-        }
-
-        notifyItemInserted(0); // Notify UI that a new item was added at the top
-    }
-
     /**
      * Removes a search item at a specific position.
      */
@@ -0,0 +1,78 @@
+package com.example.app.Adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.app.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter for the autocomplete suggestions shown under the search bar while typing.
+ */
+public class SuggestionAdapter extends RecyclerView.Adapter<SuggestionAdapter.ViewHolder> {
+    private final List<String> suggestions = new ArrayList<>();
+    private final OnSuggestionClickListener listener;
+
+    // Interface for notifying the parent when a suggestion is picked
+    public interface OnSuggestionClickListener {
+        void onSuggestionClick(String suggestion);
+    }
+
+    public SuggestionAdapter(OnSuggestionClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Inflates the layout for each suggestion row.
+     */
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_suggestion, parent, false);
+        return new ViewHolder(view);
+    }
+
+    /**
+     * Binds a suggestion to its row and forwards taps to the listener.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        String suggestion = suggestions.get(position);
+        holder.suggestionText.setText(suggestion);
+        holder.itemView.setOnClickListener(v -> listener.onSuggestionClick(suggestion));
+    }
+
+    @Override
+    public int getItemCount() {
+        return suggestions.size();
+    }
+
+    /**
+     * Replaces the current suggestions with a new set.
+     */
+    public void setSuggestions(List<String> newSuggestions) {
+        suggestions.clear();
+        suggestions.addAll(newSuggestions);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * ViewHolder for holding the suggestion text.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView suggestionText;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            suggestionText = itemView.findViewById(R.id.suggestionText);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.app.Data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.app.Model.TableTennisProduct;
+import com.example.app.Search.AnalyzedFields;
+import com.example.app.Search.TextAnalyzer;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQLite mirror of the products collection, so category lists and search keep working
+ * offline, and keep working for catalogs too large to hold on the heap.
+ *
+ * Products are stored one row each, with B-tree indexes on (category, id) for category
+ * pages and on price for price ranges. A full-text table holds each product's analyzed
+ * name, description and tag terms, keyed by the product row's rowid. A small meta table
+ * keeps the sync watermarks, so the mirror can be brought up to date on its own.
+ *
+ * Every read is bounded: category pages continue after the last product ID seen, so each
+ * page is one index seek no matter how deep the user scrolls, and search, top viewed and
+ * suggestions return at most the rows asked for.
+ * Must not be used on the main thread.
+ */
+public class CatalogDatabase extends SQLiteOpenHelper {
+    private static final String DB_NAME = "catalog.db";
+    private static final int DB_VERSION = 2;
+
+    private static final String PRODUCTS = "products";
+    private static final String PRODUCTS_FTS = "products_fts";
+    private static final String META = "meta";
+
+    private static final String COLUMNS =
+            "id, name, description, price, category_id, views, tags, image_urls, updated_at";
+
+    // Meta keys
+    private static final String SYNCED_THROUGH = "synced_through";
+    private static final String VIEWS_SYNCED_THROUGH = "views_synced_through";
+    private static final String DOWNLOAD = "download";
+
+    private static final Type STRING_LIST = new TypeToken<List<String>>() {}.getType();
+
+    private final Gson gson = new Gson();
+    private long download = -1; // Number of the newest full download, -1 until read from meta
+
+    public CatalogDatabase(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + PRODUCTS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "name TEXT, "
+                + "description TEXT, "
+                + "price REAL NOT NULL, "
+                + "category_id TEXT, "
+                + "category_key TEXT, " // Normalized category_id, categories match case-insensitively
+                + "views INTEGER NOT NULL, "
+                + "tags TEXT, "         // JSON array
+                + "image_urls TEXT, "   // JSON array
+                + "updated_at INTEGER, "
+                + "download INTEGER NOT NULL)"); // Full download that last wrote the row
+        db.execSQL("CREATE INDEX products_category ON " + PRODUCTS + " (category_key, id)");
+        db.execSQL("CREATE INDEX products_price ON " + PRODUCTS + " (price)");
+
+        // The platform SQLite is built with FTS3/4 but not FTS5
+        db.execSQL("CREATE VIRTUAL TABLE " + PRODUCTS_FTS + " USING fts4(name, description, tags)");
+
+        db.execSQL("CREATE TABLE " + META + " (key TEXT PRIMARY KEY, value INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only a mirror, the next sync refills it
+        db.execSQL("DROP TABLE IF EXISTS " + META);
+        db.execSQL("DROP TABLE IF EXISTS " + PRODUCTS_FTS);
+        db.execSQL("DROP TABLE IF EXISTS " + PRODUCTS);
+        onCreate(db);
+    }
+
+    /**
+     * Starts a full download. Products not written again before finishDownload() are
+     * deleted then, as they are gone from the collection.
+     */
+    public void startDownload() {
+        download = getDownload() + 1;
+        setMeta(getWritableDatabase(), DOWNLOAD, download);
+    }
+
+    /**
+     * Ends the full download started last: deletes the products it did not see and
+     * moves both watermarks to where the download started.
+     */
+    public void finishDownload(long syncedThrough, long viewsSyncedThrough) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            String unseen = "download < " + getDownload();
+            db.execSQL("DELETE FROM " + PRODUCTS_FTS + " WHERE docid IN (SELECT rowid FROM " + PRODUCTS
+                    + " WHERE " + unseen + ")");
+            db.delete(PRODUCTS, unseen, null);
+            setMeta(db, SYNCED_THROUGH, syncedThrough);
+            setMeta(db, VIEWS_SYNCED_THROUGH, viewsSyncedThrough);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Upserts the changed products and deletes the removed ones in one transaction.
+     */
+    public void applyChanges(Collection<TableTennisProduct> changed, Collection<String> removedIds) {
+        SQLiteDatabase db = getWritableDatabase();
+        long download = getDownload();
+        db.beginTransaction();
+        try {
+            for (TableTennisProduct product : changed) {
+                delete(db, product.getId());
+                insert(db, product, download);
+            }
+            for (String id : removedIds) {
+                delete(db, id);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Sets the view counts of the given products, and the views watermark, in one transaction.
+     */
+    public void setViews(Map<String, Integer> views, long viewsSyncedThrough) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Integer> entry : views.entrySet()) {
+                ContentValues values = new ContentValues();
+                values.put("views", entry.getValue());
+                db.update(PRODUCTS, values, "id = ?", new String[]{entry.getKey()});
+            }
+            setMeta(db, VIEWS_SYNCED_THROUGH, viewsSyncedThrough);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * The newest product change applied, as epoch millis; 0 if no full download has finished.
+     */
+    public long getSyncedThrough() {
+        return getMeta(SYNCED_THROUGH, 0);
+    }
+
+    public void setSyncedThrough(long syncedThrough) {
+        setMeta(getWritableDatabase(), SYNCED_THROUGH, syncedThrough);
+    }
+
+    /**
+     * The newest view count roll-up applied, as epoch millis.
+     */
+    public long getViewsSyncedThrough() {
+        return getMeta(VIEWS_SYNCED_THROUGH, 0);
+    }
+
+    public boolean isEmpty() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT 1 FROM " + PRODUCTS + " LIMIT 1", null)) {
+            return !cursor.moveToFirst();
+        }
+    }
+
+    public int count() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + PRODUCTS, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    public TableTennisProduct getProduct(String id) {
+        List<TableTennisProduct> products = query("SELECT " + COLUMNS + " FROM " + PRODUCTS + " WHERE id = ?",
+                new String[]{id});
+        return products.isEmpty() ? null : products.get(0);
+    }
+
+    /**
+     * The product at the given position in rowid order, for picking one at random.
+     */
+    public TableTennisProduct getProductAt(int position) {
+        List<TableTennisProduct> products = query("SELECT " + COLUMNS + " FROM " + PRODUCTS
+                + " LIMIT 1 OFFSET " + position, null);
+        return products.isEmpty() ? null : products.get(0);
+    }
+
+    /**
+     * Returns every product of the category in ID order.
+     */
+    public List<TableTennisProduct> getProductsInCategory(String categoryId) {
+        if (categoryId == null) return new ArrayList<>();
+        return query("SELECT " + COLUMNS + " FROM " + PRODUCTS + " WHERE category_key = ? ORDER BY id",
+                new String[]{TextAnalyzer.normalize(categoryId)});
+    }
+
+    /**
+     * Returns up to {@code limit} products of the category in ID order, starting after
+     * {@code afterId} (null for the first page).
+     */
+    public List<TableTennisProduct> getCategoryPage(String categoryId, String afterId, int limit) {
+        if (categoryId == null) return new ArrayList<>();
+        String key = TextAnalyzer.normalize(categoryId);
+        String sql = "SELECT " + COLUMNS + " FROM " + PRODUCTS
+                + " WHERE category_key = ?" + (afterId != null ? " AND id > ?" : "")
+                + " ORDER BY id LIMIT " + limit;
+        return query(sql, afterId != null ? new String[]{key, afterId} : new String[]{key});
+    }
+
+    public List<TableTennisProduct> getTopViewed(int limit) {
+        return query("SELECT " + COLUMNS + " FROM " + PRODUCTS + " ORDER BY views DESC, id LIMIT " + limit, null);
+    }
+
+    /**
+     * Returns up to {@code limit} products matching every word of the query as a term prefix,
+     * most viewed first. Like the in-memory index, "butter" finds "Butterfly".
+     */
+    public List<TableTennisProduct> search(String query, int limit) {
+        String match = prefixMatch(query);
+        if (match == null) return new ArrayList<>();
+        return query("SELECT " + COLUMNS + " FROM " + PRODUCTS
+                + " WHERE rowid IN (SELECT docid FROM " + PRODUCTS_FTS + " WHERE " + PRODUCTS_FTS + " MATCH ?)"
+                + " ORDER BY views DESC, id LIMIT " + limit, new String[]{match});
+    }
+
+    /**
+     * Returns up to {@code limit} names of the most viewed products whose name has a word
+     * starting with each word of the prefix.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        List<String> names = new ArrayList<>();
+        String match = prefixMatch(prefix);
+        if (match == null) return names;
+        String sql = "SELECT name, MAX(views) AS most FROM " + PRODUCTS
+                + " WHERE name IS NOT NULL AND rowid IN (SELECT docid FROM " + PRODUCTS_FTS
+                + " WHERE name MATCH ?) GROUP BY name ORDER BY most DESC LIMIT " + limit;
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, new String[]{match})) {
+            while (cursor.moveToNext()) names.add(cursor.getString(0));
+        }
+        return names;
+    }
+
+    // Each analyzed word as a prefix term, or null if the text has no words. The analyzed
+    // words are lowercase letters and digits only, so they never read as FTS operators.
+    private static String prefixMatch(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String term : TextAnalyzer.terms(text)) {
+            if (match.length() > 0) match.append(' ');
+            match.append(term).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    private void insert(SQLiteDatabase db, TableTennisProduct product, long download) {
+        ContentValues values = new ContentValues();
+        values.put("id", product.getId());
+        values.put("name", product.getName());
+        values.put("description", product.getDescription());
+        values.put("price", product.getPrice());
+        values.put("category_id", product.getCategoryID());
+        values.put("category_key", product.getCategoryID() != null
+                ? TextAnalyzer.normalize(product.getCategoryID()) : null);
+        values.put("views", product.getViews());
+        values.put("tags", gson.toJson(product.getTags()));
+        values.put("image_urls", gson.toJson(product.getImageUrls()));
+        values.put("updated_at", product.getUpdatedAt() != null ? product.getUpdatedAt().getTime() : null);
+        values.put("download", download);
+        long rowId = db.insertOrThrow(PRODUCTS, null, values);
+
+        // Analyzed terms rather than raw text, so matching folds accents and plurals the same way
+        AnalyzedFields fields = product.getSearchFields() != null
+                ? product.getSearchFields() : TextAnalyzer.analyze(product);
+        ContentValues text = new ContentValues();
+        text.put("docid", rowId);
+        text.put("name", String.join(" ", fields.getNameTerms()));
+        text.put("description", String.join(" ", fields.getDescriptionTerms()));
+        text.put("tags", String.join(" ", fields.getTagTerms()));
+        db.insertOrThrow(PRODUCTS_FTS, null, text);
+    }
+
+    private static void delete(SQLiteDatabase db, String id) {
+        db.execSQL("DELETE FROM " + PRODUCTS_FTS + " WHERE docid IN (SELECT rowid FROM " + PRODUCTS + " WHERE id = ?)",
+                new Object[]{id});
+        db.delete(PRODUCTS, "id = ?", new String[]{id});
+    }
+
+    private long getDownload() {
+        if (download < 0) download = getMeta(DOWNLOAD, 0);
+        return download;
+    }
+
+    private long getMeta(String key, long fallback) {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT value FROM " + META + " WHERE key = ?",
+                new String[]{key})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : fallback;
+        }
+    }
+
+    private static void setMeta(SQLiteDatabase db, String key, long value) {
+        ContentValues values = new ContentValues();
+        values.put("key", key);
+        values.put("value", value);
+        db.insertWithOnConflict(META, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private List<TableTennisProduct> query(String sql, String[] args) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            List<TableTennisProduct> products = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                TableTennisProduct product = new TableTennisProduct();
+                product.setId(cursor.getString(0));
+                product.setName(cursor.getString(1));
+                product.setDescription(cursor.getString(2));
+                product.setPrice(cursor.getDouble(3));
+                product.setCategoryID(cursor.getString(4));
+                product.setViews(cursor.getInt(5));
+                product.setTags(gson.fromJson(cursor.getString(6), STRING_LIST));
+                product.setImageUrls(gson.fromJson(cursor.getString(7), STRING_LIST));
+                if (!cursor.isNull(8)) product.setUpdatedAt(new Date(cursor.getLong(8)));
+                products.add(product);
+            }
+            return products;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.app.Data;
+
+import com.example.app.BuildConfig;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/**
+ * Hands out the app's FirebaseFirestore instance.
+ * Debug builds made with -PuseFirestoreEmulator=true talk to a local Firestore emulator
+ * instead of the live project, so jobs like the leaderboard can be exercised safely.
+ */
+final class FirestoreProvider {
+    private static boolean configured;
+
+    private FirestoreProvider() {}
+
+    static synchronized FirebaseFirestore get() {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        if (!configured) {
+            // Must happen before the instance is first used
+            if (BuildConfig.USE_FIRESTORE_EMULATOR) {
+                db.useEmulator(BuildConfig.FIRESTORE_EMULATOR_HOST, BuildConfig.FIRESTORE_EMULATOR_PORT);
+            }
+            configured = true;
+        }
+        return db;
+    }
+}
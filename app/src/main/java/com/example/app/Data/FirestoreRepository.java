@@ -1,12 +1,15 @@
 package com.example.app.Data;
 
+import android.content.Context;
 import android.util.Log;
 
 import com.example.app.Model.TableTennisProduct;
-import com.google.firebase.firestore.FieldValue;
+import com.example.app.Search.HighlightedText;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.*;
 
@@ -14,11 +17,28 @@ import java.util.*;
  * A singleton class that manages Firestore operations for products, users, wishlist, and cart.
  */
 public class FirestoreRepository {
+    // Firestore's limit on writes in one batch
+    private static final int MAX_BATCH_WRITES = 500;
+
     private static FirestoreRepository instance;
     private final FirebaseFirestore db;
 
+    // Shared copy of the products collection, answers every product query
+    private final ProductCatalogStore catalog = ProductCatalogStore.getInstance();
+
+    // Identical cart and wishlist reads in flight at the same time share one Firestore task
+    private final SingleFlight reads = new SingleFlight();
+
+    // Precomputed most viewed products, one document read for the home screen
+    private final TopViewedLeaderboard leaderboard;
+
+    // View counts split over shard documents, so popular products take writes in parallel
+    private final ShardedViewCounter viewCounter;
+
     private FirestoreRepository() {
-        db = FirebaseFirestore.getInstance();
+        db = FirestoreProvider.get();
+        leaderboard = new TopViewedLeaderboard(db);
+        viewCounter = new ShardedViewCounter(db, leaderboard);
     }
 
     // Singleton access point
@@ -35,6 +55,12 @@ public class FirestoreRepository {
         void onError(Exception e);
     }
 
+    public interface ProductPageCallback {
+        // lastId is the cursor to pass for the next page; hasMore is false once the end is reached
+        void onSuccess(List<TableTennisProduct> products, String lastId, boolean hasMore);
+        void onError(Exception e);
+    }
+
     public interface ProductDetailCallback {
         void onSuccess(TableTennisProduct product);
         void onError(Exception e);
@@ -60,88 +86,117 @@ public class FirestoreRepository {
         void onError(Exception e);
     }
 
+    public interface SearchCallback {
+        // highlights maps product IDs to their marked-up text.
+        // correctedQuery is null unless the results are for a spelling correction of the query.
+        void onSuccess(List<TableTennisProduct> products, Map<String, HighlightedText> highlights,
+                       String correctedQuery);
+        void onError(Exception e);
+    }
+
+    public interface HighlightsCallback {
+        // Maps product IDs to their marked-up text
+        void onSuccess(Map<String, HighlightedText> highlights);
+        void onError(Exception e);
+    }
+
+    public interface SuggestionsCallback {
+        void onSuccess(List<String> suggestions);
+        void onError(Exception e);
+    }
+
     /**
      * Fetches products that belong to a specific category.
      */
     public void getProductsByCategory(String categoryId, ProductsCallback callback) {
-        db.collection("products")
-                .whereEqualTo("categoryID", categoryId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<TableTennisProduct> list = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        TableTennisProduct p = doc.toObject(TableTennisProduct.class);
-                        if (p != null) {
-                            p.setId(doc.getId());
-                            list.add(p);
-                        }
-                    }
-                    callback.onSuccess(list);
-                })
-                .addOnFailureListener(callback::onError);
+        catalog.getProductsByCategory(categoryId, callback);
+    }
+
+    /**
+     * Fetches one page of a category in product ID order. Pass null as {@code afterId} for the
+     * first page, then the {@code lastId} of the previous page. Pages come from the product
+     * catalog or its SQLite mirror once either is there, and from Firestore, one page read at
+     * a time, until then.
+     */
+    public void getProductsByCategoryPage(String categoryId, String afterId, int pageSize,
+                                          ProductPageCallback callback) {
+        catalog.getProductsByCategoryPage(categoryId, afterId, pageSize, callback);
     }
 
     /**
      * Performs a case-insensitive search on product name, description, and tags.
+     * Starting a new search supersedes any older one: its results are never delivered.
      */
-    public void searchProducts(String query, ProductsCallback callback) {
-        db.collection("products")
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    String lower = query.toLowerCase();
-                    List<TableTennisProduct> all = snapshot.toObjects(TableTennisProduct.class);
-                    List<TableTennisProduct> filtered = new ArrayList<>();
-                    for (int i = 0; i < all.size(); i++) {
-                        TableTennisProduct p = all.get(i);
-                        p.setId(snapshot.getDocuments().get(i).getId());
-                        boolean matches = (p.getName() != null && p.getName().toLowerCase().contains(lower))
-                                || (p.getDescription() != null && p.getDescription().toLowerCase().contains(lower));
-                        if (!matches && p.getTags() != null) {
-                            for (String tag : p.getTags()) {
-                                if (tag != null && tag.toLowerCase().contains(lower)) {
-                                    matches = true;
-                                    break;
-                                }
-                            }
-                        }
-                        if (matches) filtered.add(p);
-                    }
-                    callback.onSuccess(filtered);
-                })
-                .addOnFailureListener(callback::onError);
+    public void searchProducts(String query, SearchCallback callback) {
+        catalog.search(query, callback);
     }
 
     /**
-     * Increments a product's view count by 1 in Firestore.
+     * Drops any search that is still in flight, e.g. when the search box is cleared.
      */
-    public void incrementProductViews(String productId) {
-        db.collection("products")
-                .document(productId)
-                .update("views", FieldValue.increment(1))
-                .addOnFailureListener(e -> Log.e("FirestoreRepo", "Failed to increment views for " + productId, e));
+    public void cancelSearches() {
+        catalog.cancelSearches();
+    }
+
+    /**
+     * Highlights the query's matches in more of the current search's results.
+     */
+    public void highlightSearchResults(String query, List<TableTennisProduct> products,
+                                       HighlightsCallback callback) {
+        catalog.highlight(query, products, callback);
+    }
+
+    /**
+     * Returns autocomplete suggestions for a partially typed query from the search index.
+     */
+    public void getSearchSuggestions(String prefix, int limit, SuggestionsCallback callback) {
+        catalog.getSuggestions(prefix, limit, callback);
+    }
+
+    /**
+     * Starts loading the saved product catalog in the background.
+     * Safe to call from every activity; only the first call does anything.
+     */
+    public void prepareCatalog(Context context) {
+        catalog.prepare(context);
+    }
+
+    /**
+     * Adds buffered view counts to the products, as increments to their view counter shards
+     * written in as few batches as Firestore allows. The products' views totals catch up when
+     * the roll-up job next runs, within ten minutes. Use ViewCounterBuffer to record single views.
+     * The batches are committed before this returns, so from then on the SDK owns them; the
+     * callback only reports whether the server took them.
+     */
+    public void addProductViews(Map<String, Integer> viewsByProduct, OperationCallback callback) {
+        List<Task<Void>> commits = new ArrayList<>();
+        WriteBatch batch = db.batch();
+        int writes = 0;
+        for (Map.Entry<String, Integer> entry : viewsByProduct.entrySet()) {
+            viewCounter.addTo(batch, entry.getKey(), entry.getValue());
+            if (++writes == MAX_BATCH_WRITES) {
+                commits.add(batch.commit());
+                batch = db.batch();
+                writes = 0;
+            }
+        }
+        if (writes > 0) commits.add(batch.commit());
+
+        Tasks.whenAll(commits)
+                .addOnSuccessListener(unused -> {
+                    viewCounter.rollUpIfDue();
+                    if (callback != null) callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    if (callback != null) callback.onError(e);
+                });
     }
 
     /**
      * Gets full product details by ID.
      */
     public void getProductById(String productId, ProductDetailCallback callback) {
-        db.collection("products")
-                .document(productId)
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        TableTennisProduct product = doc.toObject(TableTennisProduct.class);
-                        if (product != null) {
-                            product.setId(doc.getId());
-                            callback.onSuccess(product);
-                        } else {
-                            callback.onError(new NullPointerException("Product deserialized to null"));
-                        }
-                    } else {
-                        callback.onError(new IllegalArgumentException("No such product: " + productId));
-                    }
-                })
-                .addOnFailureListener(callback::onError);
+        catalog.getProductById(productId, callback);
     }
 
     /**
@@ -163,10 +218,26 @@ public class FirestoreRepository {
             callback.onError(new IllegalArgumentException("Product ID cannot be null when adding to wishlist."));
             return;
         }
+        if (product.isSummary()) {
+            // The copy must be complete, so a leaderboard summary is swapped for the full product
+            getProductById(product.getId(), new ProductDetailCallback() {
+                @Override
+                public void onSuccess(TableTennisProduct full) {
+                    addProductToWishlist(userId, full, callback);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    callback.onError(e);
+                }
+            });
+            return;
+        }
+        reads.forget(wishlistKey(userId));
         db.collection("users").document(userId)
                 .collection("wishlist")
                 .document(product.getId())
-                .set(product)
+                .set(productFields(product))
                 .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(callback::onError);
     }
@@ -175,6 +246,7 @@ public class FirestoreRepository {
      * Removes a product from the user's wishlist.
      */
     public void removeProductFromWishlist(String userId, String productId, WishlistOperationCallback callback) {
+        reads.forget(wishlistKey(userId));
         db.collection("users").document(userId)
                 .collection("wishlist")
                 .document(productId)
@@ -187,20 +259,24 @@ public class FirestoreRepository {
      * Fetches all wishlist products for the given user.
      */
     public void getWishlistProducts(String userId, WishlistProductsCallback callback) {
-        db.collection("users").document(userId)
-                .collection("wishlist")
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<TableTennisProduct> wishlist = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        TableTennisProduct product = doc.toObject(TableTennisProduct.class);
-                        if (product != null) {
-                            product.setId(doc.getId());
-                            wishlist.add(product);
-                        }
-                    }
-                    callback.onSuccess(wishlist);
-                })
+        Task<List<TableTennisProduct>> task = reads.run(wishlistKey(userId), () ->
+                db.collection("users").document(userId)
+                        .collection("wishlist")
+                        .get()
+                        .continueWith(t -> {
+                            if (!t.isSuccessful()) throw t.getException();
+                            List<TableTennisProduct> wishlist = new ArrayList<>();
+                            for (DocumentSnapshot doc : t.getResult().getDocuments()) {
+                                TableTennisProduct product = doc.toObject(TableTennisProduct.class);
+                                if (product != null) {
+                                    product.setId(doc.getId());
+                                    wishlist.add(product);
+                                }
+                            }
+                            return wishlist;
+                        }));
+        // Every caller gets its own list, the screens modify theirs
+        task.addOnSuccessListener(wishlist -> callback.onSuccess(new ArrayList<>(wishlist)))
                 .addOnFailureListener(callback::onError);
     }
 
@@ -208,10 +284,11 @@ public class FirestoreRepository {
      * Checks if a specific product is in the user's wishlist.
      */
     public void checkIfProductInWishlist(String userId, String productId, WishlistOperationCallback callback) {
-        db.collection("users").document(userId)
-                .collection("wishlist")
-                .document(productId)
-                .get()
+        reads.run(wishlistKey(userId) + productId, () ->
+                        db.collection("users").document(userId)
+                                .collection("wishlist")
+                                .document(productId)
+                                .get())
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
                         callback.onSuccess();
@@ -230,6 +307,21 @@ public class FirestoreRepository {
             callback.onError(new IllegalArgumentException("Product ID cannot be null when adding to cart."));
             return;
         }
+        if (product.isSummary()) {
+            getProductById(product.getId(), new ProductDetailCallback() {
+                @Override
+                public void onSuccess(TableTennisProduct full) {
+                    addToCart(userId, full, quantity, callback);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    if (callback != null) callback.onError(e);
+                }
+            });
+            return;
+        }
+        reads.forget(cartKey(userId));
 
         db.collection("users").document(userId)
                 .collection("cart")
@@ -257,7 +349,7 @@ public class FirestoreRepository {
                     } else {
                         // Not in cart: add new item
                         Map<String, Object> cartItem = new HashMap<>();
-                        cartItem.put("product", product);
+                        cartItem.put("product", productFields(product));
                         cartItem.put("quantity", quantity);
 
                         db.collection("users").document(userId)
@@ -281,23 +373,26 @@ public class FirestoreRepository {
      * Fetches all items in the user's cart, including quantities.
      */
     public void getCartItems(String userId, ProductsCallback callback) {
-        db.collection("users").document(userId)
-                .collection("cart")
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<TableTennisProduct> cartItems = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        TableTennisProduct product = doc.get("product", TableTennisProduct.class);
-                        Long qty = doc.getLong("quantity");
-
-                        if (product != null) {
-                            product.setId(doc.getId());
-                            product.setCartQuantity(qty != null ? qty.intValue() : 1);
-                            cartItems.add(product);
-                        }
-                    }
-                    callback.onSuccess(cartItems);
-                })
+        Task<List<TableTennisProduct>> task = reads.run(cartKey(userId), () ->
+                db.collection("users").document(userId)
+                        .collection("cart")
+                        .get()
+                        .continueWith(t -> {
+                            if (!t.isSuccessful()) throw t.getException();
+                            List<TableTennisProduct> cartItems = new ArrayList<>();
+                            for (DocumentSnapshot doc : t.getResult().getDocuments()) {
+                                TableTennisProduct product = doc.get("product", TableTennisProduct.class);
+                                Long qty = doc.getLong("quantity");
+
+                                if (product != null) {
+                                    product.setId(doc.getId());
+                                    product.setCartQuantity(qty != null ? qty.intValue() : 1);
+                                    cartItems.add(product);
+                                }
+                            }
+                            return cartItems;
+                        }));
+        task.addOnSuccessListener(cartItems -> callback.onSuccess(new ArrayList<>(cartItems)))
                 .addOnFailureListener(callback::onError);
     }
 
@@ -305,6 +400,7 @@ public class FirestoreRepository {
      * Removes a specific product from the user's cart.
      */
     public void removeFromCart(String userId, String productId, OperationCallback callback) {
+        reads.forget(cartKey(userId));
         db.collection("users").document(userId)
                 .collection("cart")
                 .document(productId)
@@ -319,53 +415,40 @@ public class FirestoreRepository {
 
     /**
      * Returns the top N viewed products across the platform.
+     * Served from the leaderboard document, which the view roll-up keeps current, as
+     * summaries of the products; falls back to the catalog for longer lists or if it cannot be read.
      */
     public void getTopViewedProducts(int limit, ProductsCallback callback) {
-        db.collection("products")
-                .orderBy("views", Query.Direction.DESCENDING)
-                .limit(limit)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<TableTennisProduct> results = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot) {
-                        TableTennisProduct p = doc.toObject(TableTennisProduct.class);
-                        p.setId(doc.getId());
-                        results.add(p);
-                    }
-                    callback.onSuccess(results);
-                })
-                .addOnFailureListener(callback::onError);
+        if (limit > TopViewedLeaderboard.SIZE) {
+            catalog.getTopViewedProducts(limit, callback);
+            return;
+        }
+        leaderboard.getTop(limit, new ProductsCallback() {
+            @Override
+            public void onSuccess(List<TableTennisProduct> products) {
+                callback.onSuccess(products);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w("FirestoreRepo", "Leaderboard unavailable, using the catalog", e);
+                catalog.getTopViewedProducts(limit, callback);
+            }
+        });
     }
 
     /**
      * Picks a random product from all available products.
      */
     public void getRandomProduct(ProductDetailCallback callback) {
-        db.collection("products")
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    List<DocumentSnapshot> docs = snapshot.getDocuments();
-                    if (docs.isEmpty()) {
-                        callback.onError(new Exception("No products found"));
-                        return;
-                    }
-
-                    DocumentSnapshot randomDoc = docs.get(new Random().nextInt(docs.size()));
-                    TableTennisProduct product = randomDoc.toObject(TableTennisProduct.class);
-                    if (product != null) {
-                        product.setId(randomDoc.getId());
-                        callback.onSuccess(product);
-                    } else {
-                        callback.onError(new Exception("Failed to deserialize product"));
-                    }
-                })
-                .addOnFailureListener(callback::onError);
+        catalog.getRandomProduct(callback);
     }
 
     /**
      * Removes all items from the user's cart.
      */
     public void clearCart(String userId, OperationCallback callback) {
+        reads.forget(cartKey(userId));
         db.collection("users").document(userId)
                 .collection("cart")
                 .get()
@@ -384,6 +467,7 @@ public class FirestoreRepository {
      * Removes all items from the user's wishlist.
      */
     public void clearWishlist(String userId, OperationCallback callback) {
+        reads.forget(wishlistKey(userId));
         db.collection("users").document(userId)
                 .collection("wishlist")
                 .get()
@@ -397,4 +481,29 @@ public class FirestoreRepository {
                     if (callback != null) callback.onError(e);
                 });
     }
+
+    // The fields of a product saved in copies of it, the wishlist and cart entries. The catalog's
+    // sync and random pick bookkeeping (updatedAt, deleted, randomKey) stays out of the copies.
+    private static Map<String, Object> productFields(TableTennisProduct product) {
+        Map<String, Object> copy = new HashMap<>();
+        copy.put("id", product.getId());
+        copy.put("name", product.getName());
+        copy.put("description", product.getDescription());
+        copy.put("price", product.getPrice());
+        copy.put("categoryID", product.getCategoryID());
+        copy.put("tags", product.getTags());
+        copy.put("cartQuantity", product.getCartQuantity());
+        copy.put("views", product.getViews());
+        copy.put("imageUrls", product.getImageUrls());
+        return copy;
+    }
+
+    // Single-flight keys, ending in "/" so forgetting one user's keys never matches another's
+    private static String cartKey(String userId) {
+        return "cart/" + userId + "/";
+    }
+
+    private static String wishlistKey(String userId) {
+        return "wishlist/" + userId + "/";
+    }
 }
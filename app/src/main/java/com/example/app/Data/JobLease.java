@@ -0,0 +1,49 @@
+package com.example.app.Data;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * Lets one client at a time run a periodic job that writes shared documents.
+ * A client must claim the job in jobs/{name} first, and a claim holds every other client
+ * off for the job's interval, so however many clients are open the job runs about once
+ * per interval. Claims are timed by the device clock, so a skewed clock shifts its runs.
+ * Jobs may keep their own state in the same document; claiming leaves other fields alone.
+ */
+final class JobLease {
+    private final FirebaseFirestore db;
+
+    JobLease(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Resolves to true if this client claimed the job and should run it now,
+     * false if another client's claim is still current.
+     */
+    Task<Boolean> claim(String job, long intervalMs) {
+        DocumentReference lease = db.collection("jobs").document(job);
+        // A plain read first, so clients that find the claim current never contend for it
+        return lease.get().continueWithTask(read -> {
+            if (isHeld(read.getResult())) return Tasks.forResult(false);
+            return db.runTransaction(transaction -> {
+                if (isHeld(transaction.get(lease))) return false;
+                Date until = new Date(System.currentTimeMillis() + intervalMs);
+                transaction.set(lease, Collections.singletonMap("leaseUntil", until), SetOptions.merge());
+                return true;
+            });
+        });
+    }
+
+    private static boolean isHeld(DocumentSnapshot lease) {
+        Date until = lease.exists() ? lease.getDate("leaseUntil") : null;
+        return until != null && until.getTime() > System.currentTimeMillis();
+    }
+}
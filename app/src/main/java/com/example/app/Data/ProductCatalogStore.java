@@ -0,0 +1,927 @@
+package com.example.app.Data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.app.Model.TableTennisProduct;
+import com.example.app.R;
+import com.example.app.Search.HighlightedText;
+import com.example.app.Search.IndexSnapshot;
+import com.example.app.Search.MatchSpans;
+import com.example.app.Search.ProductSearchIndex;
+import com.example.app.Search.SynonymTable;
+import com.example.app.Util.HighlightUtils;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide copy of the product catalog, shared by every product query.
+ * The products collection is downloaded once and indexed; category lists, product
+ * lookups, top viewed and search are all answered from that copy. Random picks read
+ * a single document instead, so the home screen does not wait for the download.
+ *
+ * Data older than TTL_MS is still served, but the next query refreshes it in the
+ * background. After invalidate(), queries wait for the refresh instead. If a refresh
+ * fails, the previous copy keeps being served and no new download starts for RETRY_MS.
+ * A product lookup that finds a product the catalog is missing adds it to the catalog.
+ *
+ * Once a catalog is loaded, refreshing it only fetches products whose updatedAt is newer
+ * than the last change applied, and patches them into the index in place. Deleting a
+ * product must leave a tombstone (deleted = true, updatedAt bumped) for this to see it.
+ * View count roll-ups stamp viewsUpdatedAt instead, and are synced on a watermark of their own.
+ *
+ * The index itself is saved as an IndexSnapshot after every content change, which is what keeps
+ * category lists and search working offline.
+ *
+ * Downloads also stream, a page at a time, into CatalogDatabase, a SQLite mirror with a
+ * full-text table. A catalog of more than MAX_INDEXED_PRODUCTS is only kept there, so heap use
+ * stays bounded however large the catalog grows; queries are then answered from the mirror,
+ * as they are whenever there is no index to answer them (e.g. its snapshot was unreadable).
+ * The mirror only matches words and orders by views: no ranking, corrections or highlights.
+ */
+public class ProductCatalogStore {
+    private static final String TAG = "ProductCatalogStore";
+    private static final long TTL_MS = 10 * 60 * 1000;
+
+    // Wait after a failed download before queries start another one
+    private static final long RETRY_MS = 30 * 1000;
+
+    // Searches with fewer results than this also try a spelling correction
+    private static final int FEW_RESULTS = 3;
+
+    // Search hits highlighted along with the results, about a screen of rows.
+    // The adapter asks for the rest through highlight() as they scroll into view.
+    private static final int HIGHLIGHT_BATCH = 20;
+
+    // Random picks that land on deleted products are retried this many times in all
+    private static final int RANDOM_PICK_ATTEMPTS = 3;
+
+    // Products per page of a full download
+    private static final int DOWNLOAD_PAGE = 500;
+
+    // Larger catalogs are not indexed in memory, only kept in the mirror
+    private static final int MAX_INDEXED_PRODUCTS = 10_000;
+
+    // Search results read from the mirror at most
+    private static final int MIRROR_RESULTS = 100;
+
+    private static ProductCatalogStore instance;
+    private final FirebaseFirestore db;
+
+    // Catalog state, only touched from executor
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<CatalogTask> pendingTasks = new ArrayList<>();
+    private ProductSearchIndex index;
+    private long loadedAt;       // elapsedRealtime of the last download, 0 if none this process
+    private long failedAt;       // elapsedRealtime of the last failed download, 0 after a success
+    private Exception lastError;
+    private boolean loading;
+    private boolean invalidated; // Queries wait for the next download instead of using index
+    private File snapshotFile;
+    private CatalogDatabase database;
+    private boolean mirrorOnly;  // The catalog is too large to index, queries go to database
+    private SynonymTable synonyms = SynonymTable.EMPTY;
+    private boolean noRandomKeys; // A random-key lookup found no keyed product at all
+
+    // Whether any product in index has a randomKey, as of keyedIndex at keyedVersion
+    private boolean keyed;
+    private ProductSearchIndex keyedIndex;
+    private long keyedVersion;
+
+    // Bumped by every new search so superseded ones can be recognised and dropped
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    private final Random random = new Random();
+
+    // Concurrent lookups of the same product outside the catalog share one document read
+    private final SingleFlight productReads = new SingleFlight();
+
+    // Work queued until the catalog is available
+    private interface CatalogTask {
+        void run(ProductSearchIndex index);
+        void runOnMirror(CatalogDatabase mirror); // When there is no index
+        void fail(Exception e);
+    }
+
+    // A full download in progress, read a page at a time
+    private static class Download {
+        final long syncedThrough;
+        final long viewsSyncedThrough;
+        List<TableTennisProduct> products = new ArrayList<>(); // Null once too many to index
+
+        Download(long syncedThrough, long viewsSyncedThrough) {
+            this.syncedThrough = syncedThrough;
+            this.viewsSyncedThrough = viewsSyncedThrough;
+        }
+    }
+
+    private ProductCatalogStore() {
+        db = FirestoreProvider.get();
+    }
+
+    // Singleton access point
+    public static synchronized ProductCatalogStore getInstance() {
+        if (instance == null) {
+            instance = new ProductCatalogStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Points the catalog at its on-disk snapshot and starts loading it in the background,
+     * so the first query after a cold start does not wait for the download.
+     * Safe to call from every activity; only the first call does anything.
+     */
+    public void prepare(Context context) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            if (snapshotFile != null) return;
+            snapshotFile = new File(appContext.getFilesDir(), "search_index.bin");
+            database = new CatalogDatabase(appContext);
+            try {
+                mirrorOnly = database.count() > MAX_INDEXED_PRODUCTS;
+            } catch (SQLiteException e) {
+                Log.w(TAG, "Could not open catalog mirror", e);
+            }
+            synonyms = loadSynonyms(appContext);
+            openSnapshot();
+            if (loadedAt == 0) refresh();
+        });
+    }
+
+    /**
+     * Marks the catalog as out of date: the next query waits for a fresh, full download,
+     * even if the last one failed moments ago.
+     */
+    public void invalidate() {
+        executor.execute(() -> {
+            invalidated = true;
+            loadedAt = 0;
+            failedAt = 0;
+            noRandomKeys = false;
+        });
+    }
+
+    public void getProductsByCategory(String categoryId, FirestoreRepository.ProductsCallback callback) {
+        withCatalog(new CatalogTask() {
+            @Override
+            public void run(ProductSearchIndex index) {
+                List<TableTennisProduct> products = index.getProductsInCategory(categoryId);
+                mainHandler.post(() -> callback.onSuccess(products));
+            }
+
+            @Override
+            public void runOnMirror(CatalogDatabase mirror) {
+                List<TableTennisProduct> products = mirror.getProductsInCategory(categoryId);
+                mainHandler.post(() -> callback.onSuccess(products));
+            }
+
+            @Override
+            public void fail(Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * Delivers the page of the category that follows {@code afterId} in product ID order.
+     * Served from the catalog if it is loaded, or else from its mirror; otherwise this does not
+     * wait for the download but reads just the page from Firestore, in the same order so the
+     * sources can be mixed. Paging never refreshes the catalog itself, the other queries keep
+     * it current.
+     */
+    public void getProductsByCategoryPage(String categoryId, String afterId, int pageSize,
+                                          FirestoreRepository.ProductPageCallback callback) {
+        executor.execute(() -> {
+            openSnapshot();
+
+            // One extra product tells whether another page follows
+            List<TableTennisProduct> page = null;
+            if (!invalidated && index != null) {
+                page = index.getCategoryPage(categoryId, afterId, pageSize + 1);
+            } else if (!invalidated && hasMirror()) {
+                try {
+                    page = database.getCategoryPage(categoryId, afterId, pageSize + 1);
+                } catch (SQLiteException e) {
+                    Log.w(TAG, "Could not read catalog mirror", e);
+                }
+            }
+            if (page == null) {
+                mainHandler.post(() -> fetchCategoryPage(categoryId, afterId, pageSize, callback));
+                return;
+            }
+
+            boolean hasMore = page.size() > pageSize;
+            if (hasMore) page.remove(pageSize);
+            List<TableTennisProduct> products = page;
+            String lastId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+            mainHandler.post(() -> callback.onSuccess(products, lastId, hasMore));
+        });
+    }
+
+    // Reads one page of the category from Firestore. Deleted products are left out, so a
+    // page may hold fewer than pageSize, even none.
+    private void fetchCategoryPage(String categoryId, String afterId, int pageSize,
+                                   FirestoreRepository.ProductPageCallback callback) {
+        Query query = db.collection("products")
+                .whereEqualTo("categoryID", categoryId)
+                .orderBy(FieldPath.documentId())
+                .limit(pageSize);
+        if (afterId != null) query = query.startAfter(afterId);
+
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    List<TableTennisProduct> page = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        TableTennisProduct p = toProduct(doc);
+                        if (p != null && !p.isDeleted()) page.add(p);
+                    }
+                    String lastId = docs.isEmpty() ? afterId : docs.get(docs.size() - 1).getId();
+                    callback.onSuccess(page, lastId, docs.size() == pageSize);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Looks the product up in the catalog, falling back to Firestore for products
+     * added since the catalog was downloaded.
+     */
+    public void getProductById(String productId, FirestoreRepository.ProductDetailCallback callback) {
+        withCatalog(new CatalogTask() {
+            @Override
+            public void run(ProductSearchIndex index) {
+                TableTennisProduct product = index.getProduct(productId);
+                if (product != null) {
+                    mainHandler.post(() -> callback.onSuccess(product));
+                } else {
+                    mainHandler.post(() -> fetchProduct(productId, true, callback));
+                }
+            }
+
+            @Override
+            public void runOnMirror(CatalogDatabase mirror) {
+                TableTennisProduct product = mirror.getProduct(productId);
+                if (product != null) {
+                    mainHandler.post(() -> callback.onSuccess(product));
+                } else {
+                    mainHandler.post(() -> fetchProduct(productId, true, callback));
+                }
+            }
+
+            @Override
+            public void fail(Exception e) {
+                mainHandler.post(() -> fetchProduct(productId, false, callback));
+            }
+        });
+    }
+
+    // Reads the product from Firestore. If the catalog was searched first and missed it, the
+    // catalog is behind in a way delta syncs may never fix (e.g. a product written without
+    // updatedAt), so the product is added to it.
+    private void fetchProduct(String productId, boolean missedByCatalog,
+                              FirestoreRepository.ProductDetailCallback callback) {
+        productReads.run(productId, () -> db.collection("products").document(productId).get())
+                .addOnSuccessListener(doc -> {
+                    if (doc.exists()) {
+                        TableTennisProduct product = toProduct(doc);
+                        if (product == null) {
+                            callback.onError(new NullPointerException("Product deserialized to null"));
+                        } else if (product.isDeleted()) {
+                            callback.onError(new IllegalArgumentException("Product was deleted: " + productId));
+                        } else {
+                            if (missedByCatalog) executor.execute(() -> addMissing(product));
+                            callback.onSuccess(product);
+                        }
+                    } else {
+                        callback.onError(new IllegalArgumentException("No such product: " + productId));
+                    }
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    public void getTopViewedProducts(int limit, FirestoreRepository.ProductsCallback callback) {
+        withCatalog(new CatalogTask() {
+            @Override
+            public void run(ProductSearchIndex index) {
+                List<TableTennisProduct> sorted = new ArrayList<>(index.getProducts());
+                sorted.sort((a, b) -> Integer.compare(b.getViews(), a.getViews()));
+                List<TableTennisProduct> top = new ArrayList<>(sorted.subList(0, Math.min(limit, sorted.size())));
+                mainHandler.post(() -> callback.onSuccess(top));
+            }
+
+            @Override
+            public void runOnMirror(CatalogDatabase mirror) {
+                List<TableTennisProduct> top = mirror.getTopViewed(limit);
+                mainHandler.post(() -> callback.onSuccess(top));
+            }
+
+            @Override
+            public void fail(Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * Picks a random product by reading a single document: the first one whose randomKey
+     * is at or above a random point, wrapping around to the lowest key past the end.
+     * Picks from the catalog instead when it shows no product has a randomKey yet, so
+     * an unkeyed collection costs no lookups.
+     */
+    public void getRandomProduct(FirestoreRepository.ProductDetailCallback callback) {
+        executor.execute(() -> {
+            openSnapshot();
+            boolean keyed = index != null && !invalidated ? hasRandomKeys() : !noRandomKeys;
+            if (keyed) {
+                mainHandler.post(() -> pickRandomProduct(RANDOM_PICK_ATTEMPTS, callback));
+            } else {
+                pickFromCatalog(callback);
+            }
+        });
+    }
+
+    // Scans the catalog once per build or sync of the index, not on every pick
+    private boolean hasRandomKeys() {
+        if (keyedIndex == index && keyedVersion == index.getVersion()) return keyed;
+        keyed = false;
+        for (TableTennisProduct product : index.getProducts()) {
+            if (product.getRandomKey() > 0) {
+                keyed = true;
+                break;
+            }
+        }
+        keyedIndex = index;
+        keyedVersion = index.getVersion();
+        return keyed;
+    }
+
+    private void pickRandomProduct(int attemptsLeft, FirestoreRepository.ProductDetailCallback callback) {
+        double point = random.nextDouble();
+        firstWithRandomKeyFrom(point)
+                .continueWithTask(task -> task.isSuccessful() && task.getResult().isEmpty() && point > 0
+                        ? firstWithRandomKeyFrom(0) // Wrap around
+                        : task)
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.isEmpty()) executor.execute(() -> noRandomKeys = true);
+                    TableTennisProduct product = snapshot.isEmpty() ? null : toProduct(snapshot.getDocuments().get(0));
+                    if (product != null && !product.isDeleted()) {
+                        callback.onSuccess(product);
+                    } else if (product != null && attemptsLeft > 1) {
+                        pickRandomProduct(attemptsLeft - 1, callback); // Landed on a tombstone
+                    } else {
+                        pickFromCatalog(callback);
+                    }
+                })
+                .addOnFailureListener(e -> pickFromCatalog(callback));
+    }
+
+    private Task<QuerySnapshot> firstWithRandomKeyFrom(double point) {
+        return db.collection("products")
+                .whereGreaterThanOrEqualTo("randomKey", point)
+                .orderBy("randomKey")
+                .limit(1)
+                .get();
+    }
+
+    private void pickFromCatalog(FirestoreRepository.ProductDetailCallback callback) {
+        withCatalog(new CatalogTask() {
+            @Override
+            public void run(ProductSearchIndex index) {
+                List<TableTennisProduct> products = index.getProducts();
+                if (products.isEmpty()) {
+                    mainHandler.post(() -> callback.onError(new Exception("No products found")));
+                    return;
+                }
+                TableTennisProduct product = products.get(random.nextInt(products.size()));
+                mainHandler.post(() -> callback.onSuccess(product));
+            }
+
+            @Override
+            public void runOnMirror(CatalogDatabase mirror) {
+                int count = mirror.count();
+                TableTennisProduct product = count > 0 ? mirror.getProductAt(random.nextInt(count)) : null;
+                if (product == null) {
+                    mainHandler.post(() -> callback.onError(new Exception("No products found")));
+                    return;
+                }
+                mainHandler.post(() -> callback.onSuccess(product));
+            }
+
+            @Override
+            public void fail(Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * Searches product name, description and tags. Starting a new search supersedes any
+     * older one: its results are never delivered. When the query finds little or nothing,
+     * a spelling-corrected query is run instead if it finds more.
+     */
+    public void search(String query, FirestoreRepository.SearchCallback callback) {
+        int generation = searchGeneration.incrementAndGet();
+        withCatalog(new CatalogTask() {
+            @Override
+            public void run(ProductSearchIndex index) {
+                // Skip the work entirely if a newer search was started while this one waited
+                if (generation != searchGeneration.get()) return;
+                List<TableTennisProduct> results = index.search(query);
+                String corrected = null;
+                if (results.size() < FEW_RESULTS) {
+                    String suggestion = index.correct(query);
+                    List<TableTennisProduct> correctedResults =
+                            suggestion != null ? index.search(suggestion) : results;
+                    if (correctedResults.size() > results.size()) {
+                        results = correctedResults;
+                        corrected = suggestion;
+                    }
+                }
+
+                // Only the first rows are highlighted now, every keystroke would pay for all of them otherwise
+                if (generation != searchGeneration.get()) return;
+                Map<String, HighlightedText> highlights = buildHighlights(index,
+                        corrected != null ? corrected : query,
+                        results.subList(0, Math.min(results.size(), HIGHLIGHT_BATCH)));
+
+                List<TableTennisProduct> found = results;
+                String correctedQuery = corrected;
+                mainHandler.post(() -> {
+                    if (generation == searchGeneration.get()) {
+                        callback.onSuccess(found, highlights, correctedQuery);
+                    }
+                });
+            }
+
+            @Override
+            public void runOnMirror(CatalogDatabase mirror) {
+                if (generation != searchGeneration.get()) return;
+                List<TableTennisProduct> found = mirror.search(query, MIRROR_RESULTS);
+                mainHandler.post(() -> {
+                    if (generation == searchGeneration.get()) {
+                        callback.onSuccess(found, new HashMap<>(), null);
+                    }
+                });
+            }
+
+            @Override
+            public void fail(Exception e) {
+                mainHandler.post(() -> {
+                    if (generation == searchGeneration.get()) callback.onError(e);
+                });
+            }
+        });
+    }
+
+    /**
+     * Highlights more hits of the current search off the main thread, for rows that come into
+     * view without highlighting. Dropped if a newer search has started in the meantime.
+     */
+    public void highlight(String query, List<TableTennisProduct> products,
+                          FirestoreRepository.HighlightsCallback callback) {
+        int generation = searchGeneration.get();
+        withCatalog(new CatalogTask() {
+            @Override
+            public void run(ProductSearchIndex index) {
+                if (generation != searchGeneration.get()) return;
+                Map<String, HighlightedText> highlights = buildHighlights(index, query, products);
+                mainHandler.post(() -> {
+                    if (generation == searchGeneration.get()) callback.onSuccess(highlights);
+                });
+            }
+
+            @Override
+            public void runOnMirror(CatalogDatabase mirror) {
+                // The mirror keeps no term offsets, so its results stay plain
+                mainHandler.post(() -> callback.onSuccess(new HashMap<>()));
+            }
+
+            @Override
+            public void fail(Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    private static Map<String, HighlightedText> buildHighlights(ProductSearchIndex index, String query,
+                                                                List<TableTennisProduct> results) {
+        Map<String, HighlightedText> highlights = new HashMap<>();
+        List<MatchSpans> spans = index.matchSpans(query, results);
+        for (int i = 0; i < results.size(); i++) {
+            TableTennisProduct product = results.get(i);
+            if (product.getId() == null) continue;
+            highlights.put(product.getId(), new HighlightedText(
+                    HighlightUtils.bold(product.getName(), spans.get(i).getName()),
+                    HighlightUtils.bold(product.getDescription(), spans.get(i).getDescription())));
+        }
+        return highlights;
+    }
+
+    /**
+     * Drops any search that is still in flight, e.g. when the search box is cleared.
+     */
+    public void cancelSearches() {
+        searchGeneration.incrementAndGet();
+    }
+
+    public void getSuggestions(String prefix, int limit, FirestoreRepository.SuggestionsCallback callback) {
+        withCatalog(new CatalogTask() {
+            @Override
+            public void run(ProductSearchIndex index) {
+                List<String> suggestions = index.suggest(prefix, limit);
+                mainHandler.post(() -> callback.onSuccess(suggestions));
+            }
+
+            @Override
+            public void runOnMirror(CatalogDatabase mirror) {
+                List<String> suggestions = mirror.suggest(prefix, limit);
+                mainHandler.post(() -> callback.onSuccess(suggestions));
+            }
+
+            @Override
+            public void fail(Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    // Reads res/raw/search_synonyms; searching still works without it
+    private static SynonymTable loadSynonyms(Context context) {
+        try (Reader reader = new InputStreamReader(
+                context.getResources().openRawResource(R.raw.search_synonyms), StandardCharsets.UTF_8)) {
+            return SynonymTable.parse(reader);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not load search synonyms", e);
+            return SynonymTable.EMPTY;
+        }
+    }
+
+    /**
+     * Runs the task against the catalog on the catalog thread, or against the mirror when
+     * there is no index, downloading the catalog first if there is neither yet or it was
+     * invalidated. Fails it right away if there is neither because the last download failed.
+     */
+    private void withCatalog(CatalogTask task) {
+        executor.execute(() -> {
+            openSnapshot();
+            if (isStale()) refresh();
+            if (loading && (invalidated || (index == null && !hasMirror()))) {
+                pendingTasks.add(task);
+            } else {
+                runTask(task, lastError);
+            }
+        });
+    }
+
+    private void runTask(CatalogTask task, Exception error) {
+        if (index != null) {
+            task.run(index);
+        } else if (hasMirror()) {
+            try {
+                task.runOnMirror(database);
+            } catch (SQLiteException e) {
+                Log.w(TAG, "Could not read catalog mirror", e);
+                task.fail(e);
+            }
+        } else {
+            task.fail(error != null ? error : new IllegalStateException("Catalog not loaded"));
+        }
+    }
+
+    private boolean hasMirror() {
+        try {
+            return database != null && !database.isEmpty();
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Could not open catalog mirror", e);
+            return false;
+        }
+    }
+
+    // A failed mirror write only costs the mirror its coverage, never the refresh itself
+    private void mirror(Runnable write) {
+        if (database == null) return;
+        try {
+            write.run();
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Could not update catalog mirror", e);
+        }
+    }
+
+    // Due for a download, unless one failed less than RETRY_MS ago
+    private boolean isStale() {
+        long now = SystemClock.elapsedRealtime();
+        if (failedAt != 0 && now - failedAt < RETRY_MS) return false;
+        return loadedAt == 0 || now - loadedAt > TTL_MS;
+    }
+
+    // Serves from the snapshot until the first download of this process completes
+    private void openSnapshot() {
+        if (index != null || mirrorOnly || snapshotFile == null || !snapshotFile.exists()) return;
+        try {
+            index = IndexSnapshot.read(snapshotFile, synonyms);
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable catalog snapshot", e);
+            snapshotFile.delete();
+        }
+    }
+
+    // Brings the catalog up to date: just the changes when there is a catalog to apply
+    // them to, the whole collection otherwise
+    private void refresh() {
+        if (loading) return;
+        loading = true;
+        if (invalidated || syncedThrough() == 0) {
+            downloadAll();
+        } else {
+            downloadChanges();
+        }
+    }
+
+    // Where the next delta sync starts: the older of the index's and the mirror's watermarks,
+    // 0 if either still needs a full download. A mirror that cannot be read is left out.
+    private long syncedThrough() {
+        long mirrored;
+        try {
+            mirrored = database != null ? database.getSyncedThrough() : -1;
+        } catch (SQLiteException e) {
+            mirrored = -1;
+        }
+        return olderWatermark(index != null ? index.getSyncedThrough() : -1, mirrored);
+    }
+
+    private long viewsSyncedThrough() {
+        long mirrored;
+        try {
+            mirrored = database != null ? database.getViewsSyncedThrough() : -1;
+        } catch (SQLiteException e) {
+            mirrored = -1;
+        }
+        return olderWatermark(index != null ? index.getViewsSyncedThrough() : -1, mirrored);
+    }
+
+    // -1 stands for a copy that is not there
+    private long olderWatermark(long indexed, long mirrored) {
+        if (indexed < 0) return mirrorOnly ? Math.max(mirrored, 0) : 0;
+        return mirrored < 0 ? indexed : Math.min(indexed, mirrored);
+    }
+
+    /**
+     * Downloads the whole catalog in pages of DOWNLOAD_PAGE, writing each to the mirror as it
+     * comes and indexing the lot off the main thread, unless there are too many to index.
+     * The watermarks are read before the first page, so a change made while the pages are
+     * read is fetched again by the next delta sync rather than missed.
+     */
+    private void downloadAll() {
+        Task<QuerySnapshot> newest = newest("updatedAt");
+        Task<QuerySnapshot> newestViews = newest("viewsUpdatedAt");
+        Tasks.whenAll(newest, newestViews)
+                .addOnSuccessListener(executor, done -> {
+                    mirror(() -> database.startDownload());
+                    downloadPage(new Download(newestDate(newest.getResult(), "updatedAt"),
+                            newestDate(newestViews.getResult(), "viewsUpdatedAt")), null);
+                })
+                .addOnFailureListener(executor, this::onRefreshFailed);
+    }
+
+    private Task<QuerySnapshot> newest(String field) {
+        return db.collection("products")
+                .orderBy(field, Query.Direction.DESCENDING)
+                .limit(1)
+                .get();
+    }
+
+    private static long newestDate(QuerySnapshot snapshot, String field) {
+        Date newest = snapshot.isEmpty() ? null : snapshot.getDocuments().get(0).getDate(field);
+        return newest != null ? newest.getTime() : 0;
+    }
+
+    private void downloadPage(Download download, DocumentSnapshot after) {
+        Query page = db.collection("products")
+                .orderBy(FieldPath.documentId())
+                .limit(DOWNLOAD_PAGE);
+        if (after != null) page = page.startAfter(after);
+
+        page.get()
+                .addOnSuccessListener(executor, snapshot -> {
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    List<TableTennisProduct> live = new ArrayList<>();
+                    List<String> removed = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        TableTennisProduct p = toProduct(doc);
+                        if (p == null) continue;
+                        if (p.isDeleted()) {
+                            removed.add(p.getId());
+                        } else {
+                            live.add(p);
+                        }
+                    }
+                    mirror(() -> database.applyChanges(live, removed));
+                    if (download.products != null) {
+                        download.products.addAll(live);
+                        if (download.products.size() > MAX_INDEXED_PRODUCTS) download.products = null;
+                    }
+
+                    if (docs.size() == DOWNLOAD_PAGE) {
+                        downloadPage(download, docs.get(docs.size() - 1));
+                    } else {
+                        finishDownload(download);
+                    }
+                })
+                .addOnFailureListener(executor, this::onRefreshFailed);
+    }
+
+    private void finishDownload(Download download) {
+        mirror(() -> database.finishDownload(download.syncedThrough, download.viewsSyncedThrough));
+        mirrorOnly = download.products == null;
+        if (mirrorOnly) {
+            index = null;
+            if (snapshotFile != null) snapshotFile.delete();
+        } else {
+            index = ProductSearchIndex.build(download.products, synonyms);
+            index.setSyncedThrough(download.syncedThrough);
+            index.setViewsSyncedThrough(download.viewsSyncedThrough);
+        }
+        onRefreshed(true);
+    }
+
+    /**
+     * Fetches the products changed since the newest change already applied and upserts or
+     * removes them in the index and the mirror. The bound is inclusive since Firestore
+     * timestamps are finer than a Date: a write in the same millisecond must not be missed,
+     * and one already applied is recognised by its unchanged updatedAt and skipped (the
+     * mirror just writes it again).
+     */
+    private void downloadChanges() {
+        long since = syncedThrough();
+        db.collection("products")
+                .whereGreaterThanOrEqualTo("updatedAt", new Date(since))
+                .get()
+                .addOnSuccessListener(executor, snapshot -> {
+                    boolean changed = false;
+                    long syncedThrough = since;
+                    List<TableTennisProduct> upserted = new ArrayList<>();
+                    List<String> removed = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        TableTennisProduct p = toProduct(doc);
+                        if (p == null) continue;
+                        syncedThrough = Math.max(syncedThrough, updatedAt(p));
+                        if (p.isDeleted()) {
+                            removed.add(p.getId());
+                        } else {
+                            upserted.add(p);
+                        }
+                        if (index == null) continue;
+
+                        TableTennisProduct current = index.getProduct(p.getId());
+                        if (p.isDeleted()) {
+                            if (current != null) {
+                                index.remove(p.getId());
+                                changed = true;
+                            }
+                        } else if (current == null || updatedAt(current) != updatedAt(p)) {
+                            index.add(p);
+                            changed = true;
+                        }
+                    }
+
+                    long mirroredThrough = syncedThrough;
+                    mirror(() -> {
+                        database.applyChanges(upserted, removed);
+                        database.setSyncedThrough(mirroredThrough);
+                    });
+                    if (index != null) {
+                        changed |= syncedThrough != index.getSyncedThrough();
+                        index.setSyncedThrough(syncedThrough);
+                        if (index.needsCompaction()) index = index.compacted();
+                    }
+                    downloadViewChanges(changed);
+                })
+                .addOnFailureListener(executor, this::onRefreshFailed);
+    }
+
+    /**
+     * Fetches the products whose view counts were rolled up since the last roll-up applied
+     * (see ShardedViewCounter) and updates just their views in place. Views alone do not
+     * save a new snapshot: the saved views and their watermark stay consistent with each
+     * other, and the next content change saves both.
+     */
+    private void downloadViewChanges(boolean changed) {
+        long since = viewsSyncedThrough();
+        db.collection("products")
+                .whereGreaterThanOrEqualTo("viewsUpdatedAt", new Date(since))
+                .get()
+                .addOnSuccessListener(executor, snapshot -> {
+                    long viewsSyncedThrough = since;
+                    Map<String, Integer> views = new HashMap<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        viewsSyncedThrough = Math.max(viewsSyncedThrough, viewsUpdatedAt(doc));
+                        Long count = doc.getLong("views");
+                        if (count != null) views.put(doc.getId(), count.intValue());
+                    }
+
+                    long mirroredThrough = viewsSyncedThrough;
+                    mirror(() -> database.setViews(views, mirroredThrough));
+                    if (index != null) {
+                        for (Map.Entry<String, Integer> entry : views.entrySet()) {
+                            index.setViews(entry.getKey(), entry.getValue());
+                        }
+                        index.setViewsSyncedThrough(viewsSyncedThrough);
+                    }
+                    onRefreshed(changed);
+                })
+                .addOnFailureListener(executor, e -> {
+                    // The content changes are in, only the view counts wait for the next sync
+                    Log.w(TAG, "View count sync failed", e);
+                    onRefreshed(changed);
+                });
+    }
+
+    // Patches a product the catalog missed into the index and the mirror, leaving the sync
+    // watermarks alone
+    private void addMissing(TableTennisProduct product) {
+        mirror(() -> database.applyChanges(Collections.singletonList(product), Collections.emptyList()));
+        if (index == null || index.getProduct(product.getId()) != null) return;
+        index.add(product);
+        if (index.needsCompaction()) index = index.compacted();
+        saveSnapshot();
+    }
+
+    private void onRefreshed(boolean changed) {
+        loadedAt = SystemClock.elapsedRealtime();
+        failedAt = 0;
+        lastError = null;
+        loading = false;
+        invalidated = false;
+        noRandomKeys = false; // The catalog answers for itself again
+        if (changed) saveSnapshot();
+        runPendingTasks(null);
+    }
+
+    private void onRefreshFailed(Exception e) {
+        Log.w(TAG, "Catalog download failed", e);
+        failedAt = SystemClock.elapsedRealtime();
+        lastError = e;
+        loading = false;
+        invalidated = false; // Better an old catalog than none
+        runPendingTasks(e);
+    }
+
+    private static TableTennisProduct toProduct(DocumentSnapshot doc) {
+        TableTennisProduct p = doc.toObject(TableTennisProduct.class);
+        if (p != null) p.setId(doc.getId());
+        return p;
+    }
+
+    // Products written before updatedAt existed count as oldest
+    private static long updatedAt(TableTennisProduct p) {
+        return p.getUpdatedAt() != null ? p.getUpdatedAt().getTime() : 0;
+    }
+
+    private static long viewsUpdatedAt(DocumentSnapshot doc) {
+        Date viewsUpdatedAt = doc.getDate("viewsUpdatedAt");
+        return viewsUpdatedAt != null ? viewsUpdatedAt.getTime() : 0;
+    }
+
+    private void runPendingTasks(Exception error) {
+        List<CatalogTask> tasks = new ArrayList<>(pendingTasks);
+        pendingTasks.clear();
+        for (CatalogTask task : tasks) {
+            runTask(task, error);
+        }
+    }
+
+    private void saveSnapshot() {
+        if (snapshotFile == null || index == null) return;
+        try {
+            IndexSnapshot.write(index, snapshotFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save catalog snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.app.Data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Search history ranked by frecency: every use adds 1 to a query's score and the
+ * score halves every HALF_LIFE_MS, so frequent and recent searches both rise to the top.
+ *
+ * History is kept as an append-only log in app storage. Each change writes one line,
+ * and the log is rewritten as one line per query once it has grown well past that.
+ * All file work happens on a background thread, results are delivered on the main thread.
+ */
+public class RecentSearchStore {
+    private static final String TAG = "RecentSearchStore";
+    private static final String FILE_NAME = "recent_searches.log";
+    private static final long HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final int MAX_ENTRIES = 500;
+
+    // Compact once the log holds this many more lines than there are live queries
+    private static final int COMPACT_SLACK = 200;
+
+    // Log record types
+    private static final String USE = "U";
+    private static final String REMOVE = "R";
+    private static final String ENTRY = "E"; // Written by compaction: a query with its score
+
+    // Where history lived before this store, imported once
+    private static final String LEGACY_PREFS = "SearchPrefs";
+    private static final String LEGACY_KEY = "recentSearches";
+
+    private static RecentSearchStore instance;
+
+    public interface SearchesCallback {
+        void onLoaded(List<String> searches);
+    }
+
+    private static class Entry {
+        String query;     // As last typed
+        double score;     // Frecency as of lastUsed
+        long lastUsed;
+
+        double scoreAt(long now) {
+            return score * Math.pow(0.5, (double) (now - lastUsed) / HALF_LIFE_MS);
+        }
+    }
+
+    private final Context context;
+    private final File file;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Only touched on the executor
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int logLines;
+    private Writer log;
+
+    private RecentSearchStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.file = new File(this.context.getFilesDir(), FILE_NAME);
+        executor.execute(this::load); // Runs before any other queued operation
+    }
+
+    // Singleton access point
+    public static synchronized RecentSearchStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new RecentSearchStore(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Delivers up to {@code limit} searches, highest frecency first, on the main thread.
+     */
+    public void getTopSearches(int limit, SearchesCallback callback) {
+        executor.execute(() -> {
+            long now = System.currentTimeMillis();
+            List<Entry> ranked = new ArrayList<>(entries.values());
+            Collections.sort(ranked, (a, b) -> Double.compare(b.scoreAt(now), a.scoreAt(now)));
+
+            List<String> searches = new ArrayList<>();
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                searches.add(ranked.get(i).query);
+            }
+            mainHandler.post(() -> callback.onLoaded(searches));
+        });
+    }
+
+    /**
+     * Records that the query was searched for.
+     */
+    public void record(String query) {
+        if (query == null || query.trim().isEmpty()) return;
+        String clean = clean(query);
+        long now = System.currentTimeMillis();
+        executor.execute(() -> {
+            apply(USE, now, clean);
+            append(USE, now, clean);
+        });
+    }
+
+    /**
+     * Forgets a single query.
+     */
+    public void remove(String query) {
+        if (query == null) return;
+        String clean = clean(query);
+        long now = System.currentTimeMillis();
+        executor.execute(() -> {
+            apply(REMOVE, now, clean);
+            append(REMOVE, now, clean);
+        });
+    }
+
+    /**
+     * Forgets the whole history.
+     */
+    public void clear() {
+        executor.execute(() -> {
+            entries.clear();
+            compact(); // Nothing to keep, so start the log over
+        });
+    }
+
+    // Queries are stored one per line, so line breaks and tabs become spaces
+    private static String clean(String query) {
+        return query.trim().replaceAll("[\\t\\r\\n]+", " ");
+    }
+
+    private static String key(String query) {
+        return query.toLowerCase(Locale.ROOT);
+    }
+
+    private void apply(String type, long time, String query) {
+        switch (type) {
+            case USE: {
+                Entry entry = entries.get(key(query));
+                if (entry == null) {
+                    entry = new Entry();
+                    entries.put(key(query), entry);
+                } else {
+                    entry.score = entry.scoreAt(time);
+                }
+                entry.query = query;
+                entry.score += 1;
+                entry.lastUsed = Math.max(entry.lastUsed, time);
+                break;
+            }
+            case REMOVE:
+                entries.remove(key(query));
+                break;
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            importLegacyHistory();
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logLines++;
+                String[] parts = line.split("\t");
+                try {
+                    if (ENTRY.equals(parts[0]) && parts.length == 4) {
+                        Entry entry = new Entry();
+                        entry.lastUsed = Long.parseLong(parts[1]);
+                        entry.score = Double.parseDouble(parts[2]);
+                        entry.query = parts[3];
+                        entries.put(key(entry.query), entry);
+                    } else if (parts.length == 3) {
+                        apply(parts[0], Long.parseLong(parts[1]), parts[2]);
+                    }
+                } catch (NumberFormatException e) {
+                    // A torn last line after a crash, skip it
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read search history", e);
+        }
+        if (logLines > entries.size() + COMPACT_SLACK || entries.size() > MAX_ENTRIES) compact();
+    }
+
+    // One-time move of the old SharedPreferences list, most recent first
+    private void importLegacyHistory() {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+        String json = prefs.getString(LEGACY_KEY, null);
+        if (json == null) return;
+
+        List<String> saved = new Gson().fromJson(json, new TypeToken<List<String>>() {}.getType());
+        if (saved != null) {
+            long now = System.currentTimeMillis();
+            for (int i = saved.size() - 1; i >= 0; i--) {
+                if (saved.get(i) != null && !saved.get(i).trim().isEmpty()) {
+                    apply(USE, now - i, clean(saved.get(i)));
+                }
+            }
+        }
+        compact();
+        prefs.edit().remove(LEGACY_KEY).apply();
+    }
+
+    private void append(String type, long time, String query) {
+        try {
+            if (log == null) {
+                log = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            }
+            log.write(type + "\t" + time + "\t" + query + "\n");
+            log.flush();
+            logLines++;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append to search history", e);
+        }
+        if (logLines > entries.size() + COMPACT_SLACK || entries.size() > MAX_ENTRIES) compact();
+    }
+
+    // Rewrites the log as one line per query, keeping the MAX_ENTRIES best
+    private void compact() {
+        long now = System.currentTimeMillis();
+        List<Entry> kept = new ArrayList<>(entries.values());
+        if (kept.size() > MAX_ENTRIES) {
+            Collections.sort(kept, (a, b) -> Double.compare(b.scoreAt(now), a.scoreAt(now)));
+            for (Entry dropped : kept.subList(MAX_ENTRIES, kept.size())) {
+                entries.remove(key(dropped.query));
+            }
+            kept = new ArrayList<>(kept.subList(0, MAX_ENTRIES));
+        }
+
+        closeLog();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (Entry entry : kept) {
+                out.write(ENTRY + "\t" + entry.lastUsed + "\t" + entry.score + "\t" + entry.query + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to compact search history", e);
+            tmp.delete();
+            return;
+        }
+        if (tmp.renameTo(file)) {
+            logLines = kept.size();
+        } else {
+            Log.e(TAG, "Failed to replace search history log");
+            tmp.delete();
+        }
+    }
+
+    private void closeLog() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close search history log", e);
+        }
+        log = null;
+    }
+}
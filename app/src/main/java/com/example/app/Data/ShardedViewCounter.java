@@ -0,0 +1,180 @@
+package com.example.app.Data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Product view counts spread over SHARDS documents per product (products/{id}/viewShards/{n}),
+ * so a trending product is not held back by Firestore's sustained write rate for a single
+ * document. Each increment goes to a random shard's count and stamps it with updatedAt.
+ *
+ * The shards' views reach the product's own views field through one roll-up job rather
+ * than through every client: every ROLLUP_INTERVAL_MS a single client claims the job (see
+ * JobLease) and walks the shards written since the last run, in (updatedAt, path) order
+ * through the viewShards collection group index. Each shard remembers in rolled how much of
+ * its count the product already has, and the job adds the difference to the product's views
+ * as an increment, so views counted directly on the product before sharding are kept.
+ *
+ * The job stamps products with viewsUpdatedAt, not updatedAt, so catalog syncs of product
+ * content are not woken by view counts. It also folds the new counts into the top viewed
+ * leaderboard as it goes. A scheduled server function can take the job over by claiming
+ * the same lease.
+ */
+class ShardedViewCounter {
+    private static final String TAG = "ShardedViewCounter";
+    static final int SHARDS = 10;
+    static final String JOB = "viewRollUp";
+    private static final long ROLLUP_INTERVAL_MS = 10 * 60 * 1000;
+
+    // Shards rolled up per commit. Each costs a shard write and at most one product read and
+    // write; with the leaderboard that stays well inside the 500 writes a transaction allows.
+    static final int ROLLUP_PAGE = 200;
+
+    // Pages one run rolls up at most, anything newer waits for the next run
+    private static final int ROLLUP_MAX_PAGES = 10;
+
+    private final FirebaseFirestore db;
+    private final JobLease lease;
+    private final TopViewedLeaderboard leaderboard;
+    private final DocumentReference job; // Besides the lease, holds the roll-up watermark
+    private final Random random = new Random();
+
+    // Only touched on the main thread
+    private long lastAttempt; // elapsedRealtime of this client's last try at the job, 0 if none
+
+    ShardedViewCounter(FirebaseFirestore db, TopViewedLeaderboard leaderboard) {
+        this.db = db;
+        this.lease = new JobLease(db);
+        this.leaderboard = leaderboard;
+        this.job = db.collection("jobs").document(JOB);
+    }
+
+    /**
+     * Adds the views to a random shard of the product as part of the batch.
+     * The shard document is created on first use.
+     */
+    void addTo(WriteBatch batch, String productId, int views) {
+        Map<String, Object> increment = new HashMap<>();
+        increment.put("count", FieldValue.increment(views));
+        increment.put("updatedAt", FieldValue.serverTimestamp());
+        batch.set(shard(productId, random.nextInt(SHARDS)), increment, SetOptions.merge());
+    }
+
+    /**
+     * Runs the roll-up job if no client has run it in the last ROLLUP_INTERVAL_MS.
+     * Cheap to call after every flush: this client tries at most once per interval.
+     */
+    void rollUpIfDue() {
+        long now = SystemClock.elapsedRealtime();
+        if (lastAttempt != 0 && now - lastAttempt < ROLLUP_INTERVAL_MS) return;
+        lastAttempt = now;
+        lease.claim(JOB, ROLLUP_INTERVAL_MS)
+                .continueWithTask(claim -> claim.getResult() ? rollUpChanged() : Tasks.<Void>forResult(null))
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to roll up views", e));
+    }
+
+    /**
+     * Rolls up the shards written since the watermark, a page at a time. Each page commits
+     * together with the watermark it moves to, and only if the watermark is still where the
+     * page started, so no shard's views are ever added twice, even by overlapping runs.
+     */
+    Task<Void> rollUpChanged() {
+        return job.get().continueWithTask(read -> {
+            DocumentSnapshot state = read.getResult();
+            return rollUpPage(state.getDate("rolledUpThrough"), state.getString("rolledUpShard"),
+                    ROLLUP_MAX_PAGES);
+        });
+    }
+
+    private Task<Void> rollUpPage(Date since, String sinceShard, int pagesLeft) {
+        Query changed = db.collectionGroup("viewShards")
+                .orderBy("updatedAt")
+                .orderBy(FieldPath.documentId())
+                .limit(ROLLUP_PAGE);
+        if (since != null) changed = changed.startAfter(since, sinceShard);
+
+        return changed.get().continueWithTask(read -> {
+            List<DocumentSnapshot> shards = read.getResult().getDocuments();
+            if (shards.isEmpty()) return Tasks.forResult(null);
+            DocumentSnapshot last = shards.get(shards.size() - 1);
+            Date through = last.getDate("updatedAt");
+            String throughShard = last.getReference().getPath();
+
+            Map<DocumentReference, Long> views = new HashMap<>();
+            for (DocumentSnapshot shard : shards) {
+                long delta = unrolled(shard);
+                if (delta <= 0) continue;
+                DocumentReference product = shard.getReference().getParent().getParent();
+                Long sum = views.get(product);
+                views.put(product, (sum != null ? sum : 0) + delta);
+            }
+
+            return db.runTransaction(transaction -> {
+                // Every read comes before the first write
+                DocumentSnapshot state = transaction.get(job);
+                if (!Objects.equals(state.getDate("rolledUpThrough"), since)
+                        || !Objects.equals(state.getString("rolledUpShard"), sinceShard)) {
+                    return false; // Another run got here first
+                }
+                Map<DocumentReference, DocumentSnapshot> onBoard = leaderboard.read(transaction);
+                Map<DocumentReference, DocumentSnapshot> products =
+                        onBoard != null ? onBoard : new LinkedHashMap<>();
+                for (DocumentReference product : views.keySet()) {
+                    if (!products.containsKey(product)) products.put(product, transaction.get(product));
+                }
+
+                for (DocumentSnapshot shard : shards) {
+                    long delta = unrolled(shard);
+                    if (delta > 0) transaction.update(shard.getReference(), "rolled", FieldValue.increment(delta));
+                }
+                for (Map.Entry<DocumentReference, Long> entry : views.entrySet()) {
+                    // Views of a product whose document is gone have nowhere to go
+                    if (!products.get(entry.getKey()).exists()) continue;
+                    transaction.update(entry.getKey(), "views", FieldValue.increment(entry.getValue()),
+                            "viewsUpdatedAt", FieldValue.serverTimestamp());
+                }
+                if (onBoard != null && !views.isEmpty()) leaderboard.update(transaction, products, views);
+
+                Map<String, Object> watermark = new HashMap<>();
+                watermark.put("rolledUpThrough", through);
+                watermark.put("rolledUpShard", throughShard);
+                transaction.set(job, watermark, SetOptions.merge());
+                return true;
+            }).continueWithTask(committed -> {
+                boolean more = committed.getResult() && shards.size() == ROLLUP_PAGE && pagesLeft > 1;
+                return more ? rollUpPage(through, throughShard, pagesLeft - 1) : Tasks.<Void>forResult(null);
+            });
+        });
+    }
+
+    // Views counted on the shard that its product does not have yet
+    private static long unrolled(DocumentSnapshot shard) {
+        Long count = shard.getLong("count");
+        Long rolled = shard.getLong("rolled");
+        return (count != null ? count : 0) - (rolled != null ? rolled : 0);
+    }
+
+    private DocumentReference shard(String productId, int n) {
+        return db.collection("products").document(productId)
+                .collection("viewShards").document(String.valueOf(n));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.app.Data;
+
+import com.google.android.gms.tasks.Task;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent reads: while a task started under a key is still running,
+ * asking for the same key returns that task instead of starting another one.
+ * Keys name the operation and its arguments, e.g. "cart/<userId>/".
+ */
+class SingleFlight {
+    private final Map<String, Task<?>> inFlight = new HashMap<>();
+
+    /**
+     * Returns the running task for the key, or starts one with {@code start}.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T> Task<T> run(String key, Supplier<Task<T>> start) {
+        Task<T> task = (Task<T>) inFlight.get(key);
+        if (task != null) return task;
+
+        Task<T> started = start.get();
+        inFlight.put(key, started);
+        started.addOnCompleteListener(t -> finished(key, started));
+        return started;
+    }
+
+    /**
+     * Stops sharing running tasks whose key starts with the prefix, so reads issued after a
+     * write never receive a result fetched before it.
+     */
+    synchronized void forget(String keyPrefix) {
+        Iterator<String> keys = inFlight.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(keyPrefix)) keys.remove();
+        }
+    }
+
+    private synchronized void finished(String key, Task<?> task) {
+        // Only if not already forgotten and replaced by a newer task
+        if (inFlight.get(key) == task) inFlight.remove(key);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.app.Data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.app.Model.TableTennisProduct;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most viewed products, precomputed into one small document (leaderboards/topViewed)
+ * so the home screen costs a single document read instead of an orderBy("views") query
+ * that re-reads every full product document.
+ *
+ * Entries only hold what the top picks list shows (id, name, price, thumbnailUrl, views),
+ * so the products handed out are summaries; saving a copy of one looks the full product up
+ * first. The view roll-up (see ShardedViewCounter) keeps the board current: every page it
+ * commits folds the new counts into the board in the same transaction. A missing board is
+ * ranked once from a views query by whoever reads it first.
+ */
+public class TopViewedLeaderboard {
+    private static final String TAG = "TopViewedLeaderboard";
+
+    // Entries kept on the board; requests for more go to the catalog instead
+    static final int SIZE = 20;
+
+    // Boards written in an older format are treated as missing
+    private static final long FORMAT = 3;
+
+    // The board changes slowly, so a read is reused for this long
+    private static final long CACHE_MS = 5 * 60 * 1000;
+
+    private final FirebaseFirestore db;
+    private final DocumentReference board;
+    private final Query topViewed;
+
+    // Last board read, only touched on the main thread
+    private List<TableTennisProduct> cached;
+    private long cachedAt;
+
+    TopViewedLeaderboard(FirebaseFirestore db) {
+        this.db = db;
+        this.board = db.collection("leaderboards").document("topViewed");
+        this.topViewed = db.collection("products")
+                .orderBy("views", Query.Direction.DESCENDING)
+                .limit(SIZE * 2); // Room to skip deleted products
+    }
+
+    /**
+     * Delivers up to {@code limit} (at most SIZE) of the most viewed products, most viewed first.
+     * The products are summaries, see TableTennisProduct.isSummary().
+     */
+    public void getTop(int limit, FirestoreRepository.ProductsCallback callback) {
+        if (cached != null && SystemClock.elapsedRealtime() - cachedAt < CACHE_MS) {
+            callback.onSuccess(head(cached, limit));
+            return;
+        }
+        board.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<Map<String, Object>> entries = entries(snapshot);
+                    if (entries == null) {
+                        bootstrap(limit, callback);
+                        return;
+                    }
+                    remember(toProducts(entries));
+                    callback.onSuccess(head(cached, limit));
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    // No usable board: ranks the products for this caller, then saves the board
+    // unless another client saved one meanwhile
+    private void bootstrap(int limit, FirestoreRepository.ProductsCallback callback) {
+        topViewed.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<Map<String, Object>> entries = rank(snapshot);
+                    remember(toProducts(entries));
+                    callback.onSuccess(head(cached, limit));
+                    db.runTransaction(transaction -> {
+                        if (entries(transaction.get(board)) == null) transaction.set(board, boardData(entries));
+                        return null;
+                    }).addOnFailureListener(e -> Log.w(TAG, "Failed to save leaderboard", e));
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * First half of folding a roll-up into the board: reads the board and the products on
+     * it within the roll-up's transaction. Returns null if there is no usable board yet.
+     */
+    Map<DocumentReference, DocumentSnapshot> read(Transaction transaction) throws FirebaseFirestoreException {
+        List<Map<String, Object>> entries = entries(transaction.get(board));
+        if (entries == null) return null;
+        Map<DocumentReference, DocumentSnapshot> onBoard = new LinkedHashMap<>();
+        for (Map<String, Object> entry : entries) {
+            DocumentReference product = db.collection("products").document((String) entry.get("id"));
+            onBoard.put(product, transaction.get(product));
+        }
+        return onBoard;
+    }
+
+    /**
+     * Second half: re-ranks the board's products together with the rolled-up ones, given
+     * the products as read in the transaction and the views the roll-up adds to each.
+     * Deleted products drop off, and renamed or repriced ones are refreshed on the way.
+     */
+    void update(Transaction transaction, Map<DocumentReference, DocumentSnapshot> products,
+                Map<DocumentReference, Long> addedViews) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Map.Entry<DocumentReference, DocumentSnapshot> read : products.entrySet()) {
+            TableTennisProduct product = toProduct(read.getValue());
+            if (product == null) continue;
+            Long added = addedViews.get(read.getKey());
+            if (added != null) product.setViews((int) (product.getViews() + added));
+            entries.add(entry(product));
+        }
+        entries.sort((a, b) -> Long.compare((Long) b.get("views"), (Long) a.get("views")));
+        transaction.set(board, boardData(head(entries, SIZE)));
+    }
+
+    // The top SIZE live products of a views query, as board entries
+    private static List<Map<String, Object>> rank(QuerySnapshot snapshot) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            TableTennisProduct product = toProduct(doc);
+            if (product == null) continue;
+            entries.add(entry(product));
+            if (entries.size() == SIZE) break;
+        }
+        return entries;
+    }
+
+    // Null for missing and deleted products
+    private static TableTennisProduct toProduct(DocumentSnapshot doc) {
+        TableTennisProduct product = doc.exists() ? doc.toObject(TableTennisProduct.class) : null;
+        if (product == null || product.isDeleted()) return null;
+        product.setId(doc.getId());
+        return product;
+    }
+
+    private static Map<String, Object> entry(TableTennisProduct product) {
+        List<String> images = product.getImageUrls();
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("id", product.getId());
+        entry.put("name", product.getName());
+        entry.put("price", product.getPrice());
+        entry.put("thumbnailUrl", images != null && !images.isEmpty() ? images.get(0) : null);
+        entry.put("views", (long) product.getViews());
+        return entry;
+    }
+
+    private static Map<String, Object> boardData(List<Map<String, Object>> entries) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("format", FORMAT);
+        data.put("entries", entries);
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        return data;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> entries(DocumentSnapshot snapshot) {
+        if (snapshot == null || !snapshot.exists()) return null;
+        Long format = snapshot.getLong("format");
+        if (format == null || format != FORMAT) return null;
+        Object entries = snapshot.get("entries");
+        return entries instanceof List ? (List<Map<String, Object>>) entries : null;
+    }
+
+    private static List<TableTennisProduct> toProducts(List<Map<String, Object>> entries) {
+        List<TableTennisProduct> products = new ArrayList<>(entries.size());
+        for (Map<String, Object> entry : entries) {
+            TableTennisProduct product = new TableTennisProduct();
+            product.setId((String) entry.get("id"));
+            product.setName((String) entry.get("name"));
+            product.setPrice(number(entry.get("price")).doubleValue());
+            product.setViews(number(entry.get("views")).intValue());
+            String thumbnail = (String) entry.get("thumbnailUrl");
+            if (thumbnail != null) product.setImageUrls(Collections.singletonList(thumbnail));
+            product.setSummary(true);
+            products.add(product);
+        }
+        return products;
+    }
+
+    // Firestore hands numbers back as Long or Double
+    private static Number number(Object value) {
+        return value instanceof Number ? (Number) value : 0;
+    }
+
+    private void remember(List<TableTennisProduct> products) {
+        cached = products;
+        cachedAt = SystemClock.elapsedRealtime();
+    }
+
+    private static <T> List<T> head(List<T> items, int limit) {
+        return new ArrayList<>(items.subList(0, Math.min(limit, items.size())));
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.app.Data;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects product views locally and sends them to Firestore in bulk, instead of one
+ * write per details screen opened.
+ *
+ * Views are summed per product and appended to a small log in app storage, so they
+ * survive the process being killed. Every FLUSH_INTERVAL_MS while the app is in use, and
+ * when it goes to the background, the sums go out as batches of increments. The log is
+ * cleared as soon as Firestore has accepted the batches: its offline persistence already
+ * keeps them on disk until they reach the server, so each view is sent exactly once.
+ */
+public class ViewCounterBuffer {
+    private static final String TAG = "ViewCounterBuffer";
+    private static final String FILE_NAME = "pending_views.log";
+    private static final long FLUSH_INTERVAL_MS = 60 * 1000;
+
+    private static ViewCounterBuffer instance;
+
+    private final File file;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Only touched on the executor
+    private final Map<String, Integer> pending = new HashMap<>();
+    private Writer log;
+    private ScheduledFuture<?> timer;  // Null while the app is in the background
+
+    private ViewCounterBuffer(Context context) {
+        this.file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        executor.execute(this::load); // Runs before any other queued operation
+        resume();
+    }
+
+    // Singleton access point
+    public static synchronized ViewCounterBuffer getInstance(Context context) {
+        if (instance == null) {
+            instance = new ViewCounterBuffer(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Counts one view of the product.
+     */
+    public void record(String productId) {
+        if (productId == null || productId.isEmpty()) return;
+        executor.execute(() -> {
+            add(productId, 1);
+            append(productId, 1);
+        });
+    }
+
+    /**
+     * Sends the buffered views now and stops sending on a timer, for when the app goes
+     * to the background. Views recorded after this wait for resume() or the next pause().
+     */
+    public void pause() {
+        executor.execute(() -> {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            send();
+        });
+    }
+
+    /**
+     * Starts sending buffered views every FLUSH_INTERVAL_MS again, for when the app is back
+     * in use. Does nothing if the timer is already running.
+     */
+    public void resume() {
+        executor.execute(() -> {
+            if (timer == null) {
+                timer = executor.scheduleWithFixedDelay(this::send,
+                        FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    // Hands the sums to Firestore and forgets them. The SDK keeps accepted writes in its
+    // own on-disk queue and retries them until the server has them, so they are not kept
+    // here as well: a restart would send them a second time.
+    private void send() {
+        if (pending.isEmpty()) return;
+        Map<String, Integer> counts = new HashMap<>(pending);
+        FirestoreRepository.getInstance().addProductViews(counts, new FirestoreRepository.OperationCallback() {
+            @Override
+            public void onSuccess() {
+                Log.d(TAG, "Sent views for " + counts.size() + " products");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // Only a write the server refuses outright fails, retrying it would not help
+                Log.e(TAG, "Views rejected for " + counts.size() + " products", e);
+            }
+        });
+        pending.clear();
+        rewriteLog();
+    }
+
+    private void add(String productId, int views) {
+        Integer current = pending.get(productId);
+        pending.put(productId, (current != null ? current : 0) + views);
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 2) continue;
+                try {
+                    add(parts[0], Integer.parseInt(parts[1]));
+                } catch (NumberFormatException e) {
+                    // A torn last line after a crash, skip it
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read pending views", e);
+        }
+        rewriteLog(); // One line per product from here on
+    }
+
+    private void append(String productId, int views) {
+        try {
+            if (log == null) {
+                log = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            }
+            log.write(productId + "\t" + views + "\n");
+            log.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save view", e);
+        }
+    }
+
+    // Replaces the log with the current sums
+    private void rewriteLog() {
+        closeLog();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+                out.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to rewrite pending views", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Failed to replace pending views log");
+            tmp.delete();
+        }
+    }
+
+    private void closeLog() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close pending views log", e);
+        }
+        log = null;
+    }
+}
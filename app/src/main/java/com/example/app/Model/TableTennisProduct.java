@@ -2,12 +2,19 @@ package com.example.app.Model;
 
 import androidx.annotation.NonNull;
 
+import com.example.app.Search.AnalyzedFields;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.Date;
 import java.util.List;
 
 /**
  * Data model representing a table tennis product.
  * This class maps directly to documents in the "products" Firestore collection.
+ * Bookkeeping fields such as the view counter's viewsUpdatedAt are left out of the model.
  */
+@IgnoreExtraProperties
 public class TableTennisProduct {
     // Firestore document ID (not stored as a field in Firestore itself)
     private String id;
@@ -30,6 +37,21 @@ public class TableTennisProduct {
     // URLs to product images
     private List<String> imageUrls;
 
+    // Last time the document changed, lets the app sync only what changed since its last download
+    private Date updatedAt;
+
+    // Tombstone: deleted products stay in the collection with this set, so syncing sees the delete
+    private boolean deleted;
+
+    // Uniform in [0, 1), assigned once on creation; picking a random product is one indexed lookup
+    private double randomKey;
+
+    // Normalized text used by search, computed once on load and never written to Firestore
+    private AnalyzedFields searchFields;
+
+    // Only holds what product lists show (read from the top viewed leaderboard), never written
+    private boolean summary;
+
     // Required no-argument constructor for Firestore deserialisation
     public TableTennisProduct() {}
 
@@ -67,6 +89,7 @@ public class TableTennisProduct {
     }
     public void setName(String name) {
         this.name = name;
+        this.searchFields = null; // Re-analyzed on next use
     }
 
     public String getDescription() {
@@ -74,6 +97,7 @@ public class TableTennisProduct {
     }
     public void setDescription(String description) {
         this.description = description;
+        this.searchFields = null; // Re-analyzed on next use
     }
 
     public double getPrice() {
@@ -95,6 +119,7 @@ public class TableTennisProduct {
     }
     public void setTags(List<String> tags) {
         this.tags = tags;
+        this.searchFields = null; // Re-analyzed on next use
     }
 
     public int getCartQuantity() {
@@ -118,6 +143,45 @@ public class TableTennisProduct {
         this.imageUrls = imageUrls;
     }
 
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public double getRandomKey() {
+        return randomKey;
+    }
+    public void setRandomKey(double randomKey) {
+        this.randomKey = randomKey;
+    }
+
+    @Exclude
+    public AnalyzedFields getSearchFields() {
+        return searchFields;
+    }
+    @Exclude
+    public void setSearchFields(AnalyzedFields searchFields) {
+        this.searchFields = searchFields;
+    }
+
+    @Exclude
+    public boolean isSummary() {
+        return summary;
+    }
+    @Exclude
+    public void setSummary(boolean summary) {
+        this.summary = summary;
+    }
+
     // For debugging/logging, prints out all the fields of the product
     @NonNull
     @Override
@@ -132,6 +196,9 @@ public class TableTennisProduct {
                 ", cartQuantity=" + cartQuantity +
                 ", views=" + views +
                 ", imageUrls=" + imageUrls +
+                ", updatedAt=" + updatedAt +
+                ", deleted=" + deleted +
+                ", randomKey=" + randomKey +
                 '}';
     }
 }
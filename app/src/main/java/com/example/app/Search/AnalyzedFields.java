@@ -0,0 +1,46 @@
+package com.example.app.Search;
+
+/**
+ * Normalized, search-ready forms of a product's text fields.
+ * Computed once by TextAnalyzer when a product is loaded, so queries never re-normalize them.
+ */
+public class AnalyzedFields {
+    // Normalized name, description and tags joined by TrigramIndex.FIELD_SEPARATOR
+    final String text;
+
+    // Analyzed (normalized, split and stemmed) terms of each field, in order of appearance
+    final String[] nameTerms;
+    final String[] descriptionTerms;
+    final String[] tagTerms;
+
+    // Every distinct term of the product
+    final String[] distinctTerms;
+
+    // Where each name and description term sits in the original text, as start/end pairs.
+    // Empty if the original could not be lined up with its terms.
+    final int[] nameOffsets;
+    final int[] descriptionOffsets;
+
+    AnalyzedFields(String text, String[] nameTerms, String[] descriptionTerms, String[] tagTerms,
+                   String[] distinctTerms, int[] nameOffsets, int[] descriptionOffsets) {
+        this.text = text;
+        this.nameTerms = nameTerms;
+        this.descriptionTerms = descriptionTerms;
+        this.tagTerms = tagTerms;
+        this.distinctTerms = distinctTerms;
+        this.nameOffsets = nameOffsets;
+        this.descriptionOffsets = descriptionOffsets;
+    }
+
+    public String[] getNameTerms() {
+        return nameTerms;
+    }
+
+    public String[] getDescriptionTerms() {
+        return descriptionTerms;
+    }
+
+    public String[] getTagTerms() {
+        return tagTerms;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.app.Search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+
+/**
+ * BM25F relevance scoring over the fields of ProductSearchIndex.
+ * Term statistics (document frequency, field lengths) are maintained while indexing,
+ * so a query only has to walk the posting lists of its own terms.
+ */
+public class Bm25Scorer {
+    static final int FIELD_NAME = 0;
+    static final int FIELD_TAGS = 1;
+    static final int FIELD_DESCRIPTION = 2;
+    static final int FIELD_COUNT = 3;
+
+    // A hit in the name counts more than one in the tags, which counts more than the description
+    private static final float[] FIELD_WEIGHTS = {3f, 2f, 1f};
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // A product found through a synonym of a query word ranks below one containing the word
+    static final float SYNONYM_WEIGHT = 0.5f;
+
+    // Ordinal * FIELD_COUNT + field -> number of words in that field
+    private int[] fieldLengths = new int[16 * FIELD_COUNT];
+    private final long[] totalFieldLengths = new long[FIELD_COUNT];
+    private int docCount;
+
+    // Scratch scores, reused across queries on the search thread
+    private float[] scores = new float[16];
+
+    /**
+     * Records the word counts of the next product's fields.
+     */
+    void addDoc(int[] lengths) {
+        int base = docCount * FIELD_COUNT;
+        if (base + FIELD_COUNT > fieldLengths.length) {
+            fieldLengths = Arrays.copyOf(fieldLengths, fieldLengths.length * 2);
+        }
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            fieldLengths[base + f] = lengths[f];
+            totalFieldLengths[f] += lengths[f];
+        }
+        docCount++;
+    }
+
+    /**
+     * Clears the scratch scores of the given products before a new query.
+     */
+    void reset(BitSet matches) {
+        if (scores.length < docCount) {
+            scores = new float[Math.max(docCount, scores.length * 2)];
+        }
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            scores[doc] = 0f;
+        }
+    }
+
+    /**
+     * Adds one query term's contribution, scaled by {@code weight}, to every matched product
+     * containing it. Walks whichever side is smaller: the posting list, or the matches probed into it.
+     */
+    void addTerm(PostingList postings, BitSet matches, int matchCount, float weight) {
+        float idf = (float) Math.log(1 + (docCount - postings.size() + 0.5) / (postings.size() + 0.5));
+        if (matchCount < postings.size()) {
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                int i = postings.indexOf(doc);
+                if (i >= 0) addScore(postings, i, doc, weight * idf);
+            }
+        } else {
+            for (int i = 0; i < postings.size(); i++) {
+                int doc = postings.get(i);
+                if (matches.get(doc)) addScore(postings, i, doc, weight * idf);
+            }
+        }
+    }
+
+    private void addScore(PostingList postings, int i, int doc, float idf) {
+        float tf = 0f;
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            int freq = postings.freq(i, f);
+            if (freq == 0) continue;
+            float avgLength = (float) totalFieldLengths[f] / docCount;
+            float norm = 1 - B + B * fieldLengths[doc * FIELD_COUNT + f] / Math.max(avgLength, 1f);
+            tf += FIELD_WEIGHTS[f] * freq / norm;
+        }
+        scores[doc] += idf * tf / (K1 + tf);
+    }
+
+    /**
+     * Orders the matched products by score using a bounded heap.
+     * Only the best {@code k} are fully ordered; the rest follow in ordinal order.
+     */
+    int[] rank(BitSet matches, int k) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, this::compareDocs);
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            heap.add(doc);
+            if (heap.size() > k) heap.poll();
+        }
+
+        int[] ranked = new int[matches.cardinality()];
+        int top = heap.size();
+        BitSet head = new BitSet();
+        for (int i = top - 1; i >= 0; i--) {
+            int doc = heap.poll();
+            ranked[i] = doc;
+            head.set(doc);
+        }
+        int next = top;
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            if (!head.get(doc)) ranked[next++] = doc;
+        }
+        return ranked;
+    }
+
+    // Lower score first (heap root is the weakest), earlier ordinal wins ties
+    private int compareDocs(int a, int b) {
+        int byScore = Float.compare(scores[a], scores[b]);
+        return byScore != 0 ? byScore : Integer.compare(b, a);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Category and tag facets over one result list, computed in a single pass.
+ * Each facet value keeps a BitSet of the result positions carrying it, so counts are a
+ * cardinality and switching filters is a bitset lookup instead of a re-scan of the results.
+ */
+public class FacetCounts {
+    private final int size;
+    private final Map<String, BitSet> categories = new HashMap<>();
+    private final Map<String, BitSet> tags = new HashMap<>();
+
+    private FacetCounts(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Builds the facets of the given results in one pass.
+     */
+    public static FacetCounts of(List<TableTennisProduct> results) {
+        FacetCounts facets = new FacetCounts(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            TableTennisProduct product = results.get(i);
+            if (product.getCategoryID() != null) {
+                facets.mark(facets.categories, product.getCategoryID(), i);
+            }
+            if (product.getTags() != null) {
+                for (String tag : product.getTags()) {
+                    if (tag != null) facets.mark(facets.tags, tag, i);
+                }
+            }
+        }
+        return facets;
+    }
+
+    private void mark(Map<String, BitSet> facet, String value, int position) {
+        String key = value.toLowerCase(Locale.ROOT);
+        BitSet positions = facet.get(key);
+        if (positions == null) {
+            positions = new BitSet(size);
+            facet.put(key, positions);
+        }
+        positions.set(position);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int categoryCount(String category) {
+        return count(categories, category);
+    }
+
+    public int tagCount(String tag) {
+        return count(tags, tag);
+    }
+
+    /**
+     * Result positions in the given category, or every position for "all".
+     * The returned BitSet is a copy and can be intersected freely.
+     */
+    public BitSet categoryPositions(String category) {
+        if ("all".equals(category)) {
+            BitSet all = new BitSet(size);
+            all.set(0, size);
+            return all;
+        }
+        return positions(categories, category);
+    }
+
+    public BitSet tagPositions(String tag) {
+        return positions(tags, tag);
+    }
+
+    /**
+     * Tags present in the results, most common first.
+     */
+    public List<String> topTags(int limit) {
+        List<String> sorted = new ArrayList<>(tags.keySet());
+        sorted.sort((a, b) -> {
+            int byCount = Integer.compare(tags.get(b).cardinality(), tags.get(a).cardinality());
+            return byCount != 0 ? byCount : a.compareTo(b);
+        });
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    private static int count(Map<String, BitSet> facet, String value) {
+        BitSet positions = facet.get(value.toLowerCase(Locale.ROOT));
+        return positions != null ? positions.cardinality() : 0;
+    }
+
+    private BitSet positions(Map<String, BitSet> facet, String value) {
+        BitSet positions = facet.get(value.toLowerCase(Locale.ROOT));
+        return positions != null ? (BitSet) positions.clone() : new BitSet(size);
+    }
+}
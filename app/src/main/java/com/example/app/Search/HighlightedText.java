@@ -0,0 +1,22 @@
+package com.example.app.Search;
+
+/**
+ * A search hit's name and description, ready to display with the matched words marked up.
+ */
+public class HighlightedText {
+    private final CharSequence name;
+    private final CharSequence description;
+
+    public HighlightedText(CharSequence name, CharSequence description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public CharSequence getName() {
+        return name;
+    }
+
+    public CharSequence getDescription() {
+        return description;
+    }
+}
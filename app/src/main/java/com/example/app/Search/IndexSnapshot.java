@@ -0,0 +1,253 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk copy of a built ProductSearchIndex.
+ * The file is memory-mapped on startup and its arrays are bulk-copied straight into the
+ * index, so a cold start can answer queries before the catalog is downloaded again
+ * and without re-analyzing any product text.
+ *
+ * Layout (big-endian): header, product table, removed ordinals, term dictionary,
+ * n-gram postings.
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+ */
+public final class IndexSnapshot {
+    private static final int MAGIC = 0x54544958; // "TTIX"
+    private static final int FORMAT_VERSION = 7;
+
+    private IndexSnapshot() {}
+
+    /**
+     * Writes the index to the given file. A temporary file is renamed into place,
+     * so a crash mid-write never leaves a truncated snapshot behind.
+     */
+    public static void write(ProductSearchIndex index, File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(index.getSyncedThrough());
+            out.writeLong(index.getViewsSyncedThrough());
+
+            List<TableTennisProduct> docs = index.docs();
+            out.writeInt(docs.size());
+            for (TableTennisProduct product : docs) {
+                writeProduct(out, product);
+            }
+
+            BitSet removed = index.removedDocs();
+            out.writeInt(removed.cardinality());
+            for (int doc = removed.nextSetBit(0); doc >= 0; doc = removed.nextSetBit(doc + 1)) {
+                out.writeInt(doc);
+            }
+
+            Map<String, PostingList> terms = index.termPostings();
+            out.writeInt(terms.size());
+            for (Map.Entry<String, PostingList> entry : terms.entrySet()) {
+                writeString(out, entry.getKey());
+                PostingList list = entry.getValue();
+                out.writeInt(list.size());
+                for (int i = 0; i < list.size(); i++) out.writeInt(list.get(i));
+                for (int i = 0; i < list.size(); i++) out.writeInt(list.packedFreq(i));
+            }
+
+            Map<Long, PostingList> trigrams = index.trigramPostings();
+            out.writeInt(trigrams.size());
+            for (Map.Entry<Long, PostingList> entry : trigrams.entrySet()) {
+                out.writeLong(entry.getKey());
+                PostingList list = entry.getValue();
+                out.writeInt(list.size());
+                for (int i = 0; i < list.size(); i++) out.writeInt(list.get(i));
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace index snapshot " + file);
+        }
+    }
+
+    /**
+     * Maps the snapshot file and rebuilds the index from it.
+     * Synonym postings are stored in the file; the table is only needed for refinement checks.
+     * Throws IOException if the file is missing, truncated or from another format version.
+     */
+    public static ProductSearchIndex read(File file, SynonymTable synonyms) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unrecognised index snapshot " + file);
+            }
+
+            try {
+                long syncedThrough = buffer.getLong();
+                long viewsSyncedThrough = buffer.getLong();
+                int docCount = buffer.getInt();
+                List<TableTennisProduct> docs = new ArrayList<>(docCount);
+                for (int i = 0; i < docCount; i++) {
+                    docs.add(readProduct(buffer));
+                }
+
+                BitSet removed = new BitSet(docCount);
+                for (int doc : readInts(buffer, buffer.getInt())) {
+                    removed.set(doc);
+                }
+
+                int termCount = buffer.getInt();
+                Map<String, PostingList> terms = new HashMap<>(termCount * 4 / 3 + 1);
+                for (int i = 0; i < termCount; i++) {
+                    String term = readString(buffer);
+                    int size = buffer.getInt();
+                    int[] ordinals = readInts(buffer, size);
+                    int[] freqs = readInts(buffer, size);
+                    terms.put(term, new PostingList(ordinals, freqs));
+                }
+
+                int trigramCount = buffer.getInt();
+                Map<Long, PostingList> trigrams = new HashMap<>(trigramCount * 4 / 3 + 1);
+                for (int i = 0; i < trigramCount; i++) {
+                    long key = buffer.getLong();
+                    int size = buffer.getInt();
+                    trigrams.put(key, new PostingList(readInts(buffer, size), null));
+                }
+
+                ProductSearchIndex index =
+                        ProductSearchIndex.restore(docs, removed, syncedThrough, terms, trigrams, synonyms);
+                index.setViewsSyncedThrough(viewsSyncedThrough);
+                return index;
+            } catch (RuntimeException e) {
+                // BufferUnderflowException and friends: the file is damaged
+                throw new IOException("Corrupt index snapshot " + file, e);
+            }
+        }
+    }
+
+    private static void writeProduct(DataOutputStream out, TableTennisProduct product) throws IOException {
+        AnalyzedFields fields = TextAnalyzer.analyze(product);
+        writeString(out, product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getDescription());
+        out.writeDouble(product.getPrice());
+        writeString(out, product.getCategoryID());
+        out.writeInt(product.getViews());
+        writeStrings(out, product.getTags());
+        writeStrings(out, product.getImageUrls());
+        out.writeLong(product.getUpdatedAt() != null ? product.getUpdatedAt().getTime() : -1);
+        out.writeDouble(product.getRandomKey());
+        out.writeBoolean(product.isDeleted());
+
+        writeString(out, fields.text);
+        writeStrings(out, Arrays.asList(fields.nameTerms));
+        writeStrings(out, Arrays.asList(fields.descriptionTerms));
+        writeStrings(out, Arrays.asList(fields.tagTerms));
+        writeInts(out, fields.nameOffsets);
+        writeInts(out, fields.descriptionOffsets);
+    }
+
+    private static TableTennisProduct readProduct(MappedByteBuffer in) {
+        TableTennisProduct product = new TableTennisProduct();
+        product.setId(readString(in));
+        product.setName(readString(in));
+        product.setDescription(readString(in));
+        product.setPrice(in.getDouble());
+        product.setCategoryID(readString(in));
+        product.setViews(in.getInt());
+        product.setTags(readStrings(in));
+        product.setImageUrls(readStrings(in));
+        long updatedAt = in.getLong();
+        if (updatedAt >= 0) product.setUpdatedAt(new Date(updatedAt));
+        product.setRandomKey(in.getDouble());
+        product.setDeleted(in.get() != 0);
+
+        String text = readString(in);
+        String[] nameTerms = readStringArray(in);
+        String[] descriptionTerms = readStringArray(in);
+        String[] tagTerms = readStringArray(in);
+        int[] nameOffsets = readInts(in, in.getInt());
+        int[] descriptionOffsets = readInts(in, in.getInt());
+        Set<String> distinct = new LinkedHashSet<>();
+        Collections.addAll(distinct, nameTerms);
+        Collections.addAll(distinct, descriptionTerms);
+        Collections.addAll(distinct, tagTerms);
+
+        // Set last: the text setters above clear any analyzed fields
+        product.setSearchFields(new AnalyzedFields(text, nameTerms, descriptionTerms, tagTerms,
+                distinct.toArray(new String[0]), nameOffsets, descriptionOffsets));
+        return product;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) writeString(out, value);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) out.writeInt(value);
+    }
+
+    private static String readString(MappedByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(MappedByteBuffer in) {
+        int size = in.getInt();
+        if (size < 0) return null;
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) values.add(readString(in));
+        return values;
+    }
+
+    private static String[] readStringArray(MappedByteBuffer in) {
+        List<String> values = readStrings(in);
+        return values == null ? new String[0] : values.toArray(new String[0]);
+    }
+
+    // Bulk-copies ints out of the mapping instead of reading them one at a time
+    private static int[] readInts(MappedByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * 4);
+        return values;
+    }
+}
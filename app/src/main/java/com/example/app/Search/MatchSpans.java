@@ -0,0 +1,23 @@
+package com.example.app.Search;
+
+/**
+ * Character ranges of a product's name and description that matched a query,
+ * as start/end pairs into the original strings.
+ */
+public class MatchSpans {
+    private final int[] name;
+    private final int[] description;
+
+    MatchSpans(int[] name, int[] description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public int[] getName() {
+        return name;
+    }
+
+    public int[] getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.app.Search;
+
+/**
+ * A search query split into free text and the structured constraints found in it,
+ * e.g. "butterfly bats under 100" -> text "butterfly", category "bats", maxPrice 100.
+ */
+public class ParsedQuery {
+    // Normalized words left once the constraints are taken out, possibly empty
+    final String text;
+
+    // Normalized category ID, or null for any category
+    final String category;
+
+    // Price bounds, null when unbounded
+    final Double minPrice;
+    final Double maxPrice;
+
+    // The free text with the category word still in it
+    private final String textWithCategory;
+
+    ParsedQuery(String text, String category, Double minPrice, Double maxPrice, String textWithCategory) {
+        this.text = text;
+        this.category = category;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.textWithCategory = textWithCategory;
+    }
+
+    public boolean hasConstraints() {
+        return category != null || minPrice != null || maxPrice != null;
+    }
+
+    /**
+     * The same query with its category word searched as plain text instead of filtering on it.
+     */
+    ParsedQuery withoutCategory() {
+        return new ParsedQuery(textWithCategory, null, minPrice, maxPrice, textWithCategory);
+    }
+
+    /**
+     * Writes the constraints back out in a form the parser reads the same way,
+     * so a corrected query keeps them.
+     */
+    String constraintsText() {
+        StringBuilder out = new StringBuilder();
+        if (category != null) out.append(category);
+        if (minPrice != null || maxPrice != null) {
+            if (out.length() > 0) out.append(' ');
+            if (minPrice != null && maxPrice != null) {
+                out.append(formatPrice(minPrice)).append('-').append(formatPrice(maxPrice));
+            } else if (maxPrice != null) {
+                out.append("under ").append(formatPrice(maxPrice));
+            } else {
+                out.append("over ").append(formatPrice(minPrice));
+            }
+        }
+        return out.toString();
+    }
+
+    private static String formatPrice(double price) {
+        return price == Math.rint(price) ? String.valueOf((long) price) : String.valueOf(price);
+    }
+}
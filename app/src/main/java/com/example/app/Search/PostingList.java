@@ -0,0 +1,109 @@
+package com.example.app.Search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable list of product ordinals for a single index term.
+ * Ordinals are appended in increasing order, so the list is always sorted and duplicate-free.
+ * Alongside each ordinal it keeps how often the term occurs in each field of that product.
+ */
+public class PostingList {
+    // Per-field counts are packed into one int, FIELD_BITS bits per field
+    private static final int FIELD_BITS = 10;
+    private static final int MAX_FREQ = (1 << FIELD_BITS) - 1;
+
+    private int[] docs;
+    private int[] freqs; // Null in lists that only record which products contain the term
+    private int size;
+
+    public PostingList() {
+        docs = new int[4];
+        freqs = new int[4];
+    }
+
+    private PostingList(int[] docs) {
+        this.docs = docs;
+    }
+
+    /**
+     * A list without per-field counts, for terms that only need to know which products
+     * contain them. Counts read from it are always 0.
+     */
+    static PostingList withoutFreqs() {
+        return new PostingList(new int[4]);
+    }
+
+    // Wraps arrays read back from an index snapshot; freqs may be null as in withoutFreqs()
+    PostingList(int[] docs, int[] freqs) {
+        this.docs = docs;
+        this.freqs = freqs;
+        this.size = docs.length;
+    }
+
+    /**
+     * Appends a product ordinal, ignoring repeats of the last one added.
+     */
+    public void add(int doc) {
+        if (size > 0 && docs[size - 1] == doc) return;
+        if (size == docs.length) {
+            int capacity = Math.max(4, size * 2);
+            docs = Arrays.copyOf(docs, capacity);
+            if (freqs != null) freqs = Arrays.copyOf(freqs, capacity);
+        }
+        docs[size] = doc;
+        if (freqs != null) freqs[size] = 0;
+        size++;
+    }
+
+    /**
+     * Records one occurrence of the term in the given field of a product.
+     * Products must be added in increasing ordinal order.
+     */
+    public void add(int doc, int field) {
+        add(doc);
+        if (freq(size - 1, field) < MAX_FREQ) {
+            freqs[size - 1] += 1 << (field * FIELD_BITS);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int i) {
+        return docs[i];
+    }
+
+    /**
+     * How often the term occurs in the given field of the i-th product in this list.
+     */
+    public int freq(int i, int field) {
+        return freqs != null ? (freqs[i] >>> (field * FIELD_BITS)) & MAX_FREQ : 0;
+    }
+
+    // Packed per-field counts of the i-th product, as stored in snapshots
+    int packedFreq(int i) {
+        return freqs != null ? freqs[i] : 0;
+    }
+
+    /**
+     * Binary searches for the given ordinal, returning its position or a negative value.
+     */
+    public int indexOf(int doc) {
+        return Arrays.binarySearch(docs, 0, size, doc);
+    }
+
+    public boolean contains(int doc) {
+        return indexOf(doc) >= 0;
+    }
+
+    /**
+     * Sets the bit of every ordinal in this list on the given BitSet.
+     */
+    public void addTo(BitSet target) {
+        for (int i = 0; i < size; i++) {
+            target.set(docs[i]);
+        }
+    }
+}
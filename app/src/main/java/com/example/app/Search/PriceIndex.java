@@ -0,0 +1,114 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Price index over a product list, kept as parallel primitive arrays sorted by price.
+ * A price range is two binary searches, and price-ordered output is a walk over the
+ * arrays rather than a fresh sort of the list.
+ */
+public class PriceIndex {
+    private final int[] positions; // List positions, cheapest first
+    private final double[] prices; // prices[i] is the price at positions[i]
+
+    private PriceIndex(int[] positions, double[] prices) {
+        this.positions = positions;
+        this.prices = prices;
+    }
+
+    /**
+     * Indexes the prices of the given products by their position in the list.
+     */
+    public static PriceIndex of(List<TableTennisProduct> products) {
+        int n = products.size();
+        double[] byPosition = new double[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            byPosition[i] = products.get(i).getPrice();
+            order[i] = i;
+        }
+        mergeSort(order, new int[n], byPosition, 0, n);
+
+        double[] sortedPrices = new double[n];
+        for (int i = 0; i < n; i++) {
+            sortedPrices[i] = byPosition[order[i]];
+        }
+        return new PriceIndex(order, sortedPrices);
+    }
+
+    public boolean isEmpty() {
+        return positions.length == 0;
+    }
+
+    public double minPrice() {
+        return isEmpty() ? 0 : prices[0];
+    }
+
+    public double maxPrice() {
+        return isEmpty() ? 0 : prices[prices.length - 1];
+    }
+
+    /**
+     * Positions of the products priced within [min, max].
+     */
+    public BitSet range(double min, double max) {
+        BitSet result = new BitSet(positions.length);
+        int to = upperBound(max);
+        for (int i = lowerBound(min); i < to; i++) {
+            result.set(positions[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Appends the selected products to {@code out} in price order, straight from the index.
+     */
+    public void appendInPriceOrder(List<TableTennisProduct> source, BitSet selected,
+                                   boolean ascending, List<TableTennisProduct> out) {
+        for (int k = 0; k < positions.length; k++) {
+            int position = positions[ascending ? k : positions.length - 1 - k];
+            if (selected.get(position)) out.add(source.get(position));
+        }
+    }
+
+    // First index whose price is >= value
+    private int lowerBound(double value) {
+        int lo = 0, hi = prices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // First index whose price is > value
+    private int upperBound(double value) {
+        int lo = 0, hi = prices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Stable sort of list positions by price, without boxing
+    private static void mergeSort(int[] order, int[] scratch, double[] keys, int from, int to) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(order, scratch, keys, from, mid);
+        mergeSort(order, scratch, keys, mid, to);
+
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            scratch[k++] = keys[order[j]] < keys[order[i]] ? order[j++] : order[i++];
+        }
+        while (i < mid) scratch[k++] = order[i++];
+        while (j < to) scratch[k++] = order[j++];
+        System.arraycopy(scratch, from, order, from, to - from);
+    }
+}
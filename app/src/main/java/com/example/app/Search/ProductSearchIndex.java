@@ -0,0 +1,776 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory inverted index over the product catalog.
+ * Every term found in a product's name, description or tags maps to the ordinals
+ * of the products containing it, so queries are answered without touching Firestore.
+ */
+public class ProductSearchIndex {
+    private static final char NAME_END = '\u0001';
+
+    // Starts the term dictionary keys of synonym postings, keeping them apart from the
+    // products' own words so they can be scored lower
+    private static final char ALIAS = '\u0002';
+
+    // Only this many top hits are fully ordered by relevance
+    private static final int RANKED_RESULTS = 50;
+
+    // Result cache bounds: queries kept, and product ordinals kept across all of them
+    private static final int CACHE_ENTRIES = 64;
+    private static final int CACHE_ORDINALS = 64 * 1024;
+
+    // Ordinal -> product, in the order products were indexed
+    private final List<TableTennisProduct> docs = new ArrayList<>();
+
+    // Product ID -> ordinal of its current version
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    // Ordinals of removed or replaced products. They stay in the postings, masked out of
+    // every result, until the index is compacted.
+    private final BitSet removed = new BitSet();
+
+    // updatedAt of the newest catalog change applied, in ms since the epoch, 0 if unknown
+    private long syncedThrough;
+
+    // viewsUpdatedAt of the newest view count roll-up applied, the same way
+    private long viewsSyncedThrough;
+
+    // Synonyms each product is additionally posted under
+    private final SynonymTable synonyms;
+
+    // Ordinal -> the single-word synonyms that product was posted under
+    private final List<String[]> docAliases = new ArrayList<>();
+
+    // Term dictionary: term -> ordinals of the products that contain it
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    // Sorted copy of the term dictionary used for prefix lookups, rebuilt lazily
+    private String[] sortedTerms;
+
+    // "Did you mean" dictionary over name, tag and category words, grown as products are added.
+    // Description words are left out: they are most of the vocabulary and rarely what people type.
+    private final SpellingCorrector corrector = new SpellingCorrector();
+
+    // Substring index over the same fields, keeps contains() semantics
+    private final TrigramIndex trigrams = new TrigramIndex();
+
+    // Normalized category ID -> ordinals of its products
+    private final Map<String, BitSet> categoryDocs = new HashMap<>();
+
+    // Normalized category ID -> ordinals of its products in product ID order, for paging.
+    // Built on first use and dropped whenever the category changes.
+    private final Map<String, int[]> categoryIdOrder = new HashMap<>();
+
+    // Category keywords the query parser recognises, analyzed term -> normalized category ID
+    private final Map<String, String> categoriesByTerm = new HashMap<>();
+    private final QueryParser parser;
+
+    // Price order of every indexed product, rebuilt lazily
+    private PriceIndex priceIndex;
+
+    // Autocomplete over names, tags and categories
+    private final SuggestionTrie suggestions = new SuggestionTrie();
+
+    // Relevance statistics and scoring
+    private final Bm25Scorer scorer = new Bm25Scorer();
+
+    // Recent query results, invalidated whenever the catalog version changes
+    private final SearchResultCache resultCache = new SearchResultCache(CACHE_ENTRIES, CACHE_ORDINALS);
+
+    // Bumped on every change to the indexed catalog
+    private long version;
+
+    // Previous query and its matches, so a query extending it only re-checks those
+    private String lastQuery;
+    private List<String> lastWords;
+    private BitSet lastMatches;
+    private long lastVersion;
+
+    public ProductSearchIndex() {
+        this(SynonymTable.EMPTY);
+    }
+
+    public ProductSearchIndex(SynonymTable synonyms) {
+        this.synonyms = synonyms;
+        this.parser = new QueryParser(categoriesByTerm, synonyms);
+    }
+
+    /**
+     * Builds an index over the given products.
+     */
+    public static ProductSearchIndex build(List<TableTennisProduct> products) {
+        return build(products, SynonymTable.EMPTY);
+    }
+
+    /**
+     * Builds an index over the given products, posting each of them under the synonyms
+     * of the words it contains as well.
+     */
+    public static ProductSearchIndex build(List<TableTennisProduct> products, SynonymTable synonyms) {
+        ProductSearchIndex index = new ProductSearchIndex(synonyms);
+        for (TableTennisProduct product : products) {
+            index.add(product);
+        }
+        return index;
+    }
+
+    /**
+     * Rebuilds an index from snapshot data without re-analyzing any text.
+     * Products must already carry their AnalyzedFields.
+     */
+    static ProductSearchIndex restore(List<TableTennisProduct> products, BitSet removed, long syncedThrough,
+                                      Map<String, PostingList> termPostings,
+                                      Map<Long, PostingList> trigramPostings, SynonymTable synonyms) {
+        ProductSearchIndex index = new ProductSearchIndex(synonyms);
+        index.postings.putAll(termPostings);
+        for (Map.Entry<Long, PostingList> entry : trigramPostings.entrySet()) {
+            index.trigrams.putPostings(entry.getKey(), entry.getValue());
+        }
+        index.removed.or(removed);
+        index.syncedThrough = syncedThrough;
+        for (TableTennisProduct product : products) {
+            AnalyzedFields fields = product.getSearchFields();
+            int doc = index.docs.size();
+            index.docs.add(product);
+            index.trigrams.addTextOnly(fields.text);
+            index.scorer.addDoc(fieldLengths(fields));
+            index.docAliases.add(index.aliasesOf(fields));
+            if (removed.get(doc)) continue; // Only keeps its ordinal, so the postings stay aligned
+
+            if (product.getId() != null) index.ordinals.put(product.getId(), doc);
+            index.addCategory(doc, product);
+            index.addSuggestions(product, 1);
+            index.addSpellings(product, fields);
+        }
+        index.version = products.size();
+        return index;
+    }
+
+    /**
+     * Adds a single product to the index, replacing any product with the same ID.
+     */
+    public void add(TableTennisProduct product) {
+        if (product.getId() != null) remove(product.getId());
+        int doc = docs.size();
+        docs.add(product);
+        if (product.getId() != null) ordinals.put(product.getId(), doc);
+        version++;
+
+        AnalyzedFields fields = TextAnalyzer.analyze(product);
+        indexTerms(fields.nameTerms, doc, Bm25Scorer.FIELD_NAME);
+        indexTerms(fields.tagTerms, doc, Bm25Scorer.FIELD_TAGS);
+        indexTerms(fields.descriptionTerms, doc, Bm25Scorer.FIELD_DESCRIPTION);
+        indexAliases(synonyms.aliases(fields.nameTerms), doc, Bm25Scorer.FIELD_NAME);
+        indexAliases(synonyms.aliases(fields.tagTerms), doc, Bm25Scorer.FIELD_TAGS);
+        indexAliases(synonyms.aliases(fields.descriptionTerms), doc, Bm25Scorer.FIELD_DESCRIPTION);
+        trigrams.add(fields.text);
+        scorer.addDoc(fieldLengths(fields));
+        docAliases.add(aliasesOf(fields));
+        addCategory(doc, product);
+        priceIndex = null;
+
+        addSuggestions(product, 1);
+        addSpellings(product, fields);
+    }
+
+    /**
+     * Removes the product with the given ID, if indexed. Its ordinal is masked out of
+     * results rather than unlinked from every posting list; compacted() drops it for good.
+     */
+    public void remove(String id) {
+        Integer doc = ordinals.remove(id);
+        if (doc == null) return;
+        TableTennisProduct product = docs.get(doc);
+        removed.set(doc);
+        version++;
+
+        if (product.getCategoryID() != null) {
+            BitSet inCategory = categoryDocs.get(TextAnalyzer.normalize(product.getCategoryID()));
+            if (inCategory != null) inCategory.clear(doc);
+            categoryIdOrder.remove(TextAnalyzer.normalize(product.getCategoryID()));
+        }
+        priceIndex = null;
+        addSuggestions(product, -1);
+    }
+
+    /**
+     * True once removed products make up more than half of the index.
+     */
+    public boolean needsCompaction() {
+        return removed.cardinality() > docs.size() / 2;
+    }
+
+    /**
+     * Returns a new index over the current products only, without the leftovers of
+     * removed ones. Analyzed text is reused, so this costs no re-analysis.
+     */
+    public ProductSearchIndex compacted() {
+        ProductSearchIndex index = build(getProducts(), synonyms);
+        index.syncedThrough = syncedThrough;
+        index.viewsSyncedThrough = viewsSyncedThrough;
+        return index;
+    }
+
+    public int size() {
+        return docs.size() - removed.cardinality();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The updatedAt of the newest catalog change this index includes, in ms since the epoch,
+     * or 0 if unknown. Changes after it are all that needs fetching to bring the index up to date.
+     */
+    public long getSyncedThrough() {
+        return syncedThrough;
+    }
+
+    public void setSyncedThrough(long syncedThrough) {
+        this.syncedThrough = syncedThrough;
+    }
+
+    /**
+     * The viewsUpdatedAt of the newest view count change this index includes, like getSyncedThrough().
+     * View counts are synced apart from the rest of the product, see setViews().
+     */
+    public long getViewsSyncedThrough() {
+        return viewsSyncedThrough;
+    }
+
+    public void setViewsSyncedThrough(long viewsSyncedThrough) {
+        this.viewsSyncedThrough = viewsSyncedThrough;
+    }
+
+    /**
+     * Updates a product's view count in place. Views only weigh suggestions, so nothing
+     * is re-analyzed and search results stay cached.
+     */
+    public void setViews(String id, int views) {
+        TableTennisProduct product = getProduct(id);
+        if (product == null || product.getViews() == views) return;
+        addSuggestions(product, -1);
+        product.setViews(views);
+        addSuggestions(product, 1);
+    }
+
+    /**
+     * Every indexed product, in catalog order.
+     */
+    public List<TableTennisProduct> getProducts() {
+        if (removed.isEmpty()) return Collections.unmodifiableList(docs);
+        List<TableTennisProduct> products = new ArrayList<>(size());
+        for (int doc = removed.nextClearBit(0); doc < docs.size(); doc = removed.nextClearBit(doc + 1)) {
+            products.add(docs.get(doc));
+        }
+        return products;
+    }
+
+    /**
+     * Returns the product with the given ID, or null if it is not in the catalog.
+     */
+    public TableTennisProduct getProduct(String id) {
+        Integer doc = ordinals.get(id);
+        return doc != null ? docs.get(doc) : null;
+    }
+
+    /**
+     * Returns the products of a category, in catalog order. Category IDs match case-insensitively.
+     */
+    public List<TableTennisProduct> getProductsInCategory(String categoryId) {
+        List<TableTennisProduct> products = new ArrayList<>();
+        if (categoryId == null) return products;
+        BitSet inCategory = categoryDocs.get(TextAnalyzer.normalize(categoryId));
+        if (inCategory == null) return products;
+        for (int doc = inCategory.nextSetBit(0); doc >= 0; doc = inCategory.nextSetBit(doc + 1)) {
+            products.add(docs.get(doc));
+        }
+        return products;
+    }
+
+    /**
+     * Returns up to {@code limit} products of the category whose IDs follow {@code afterId},
+     * or its first products if that is null, in product ID order.
+     * Each page is a binary search into the category's ID order, sorted once per change.
+     */
+    public List<TableTennisProduct> getCategoryPage(String categoryId, String afterId, int limit) {
+        List<TableTennisProduct> page = new ArrayList<>();
+        if (categoryId == null) return page;
+        int[] order = getCategoryIdOrder(TextAnalyzer.normalize(categoryId));
+
+        // First position with an ID after afterId
+        int start = 0;
+        if (afterId != null) {
+            int end = order.length;
+            while (start < end) {
+                int mid = (start + end) >>> 1;
+                if (docs.get(order[mid]).getId().compareTo(afterId) <= 0) {
+                    start = mid + 1;
+                } else {
+                    end = mid;
+                }
+            }
+        }
+        for (int i = start; i < order.length && page.size() < limit; i++) {
+            page.add(docs.get(order[i]));
+        }
+        return page;
+    }
+
+    // Raw structures, read when writing a snapshot
+    List<TableTennisProduct> docs() {
+        return docs;
+    }
+
+    BitSet removedDocs() {
+        return removed;
+    }
+
+    Map<String, PostingList> termPostings() {
+        return postings;
+    }
+
+    Map<Long, PostingList> trigramPostings() {
+        return trigrams.postings();
+    }
+
+    /**
+     * Returns the products whose name, description or a tag contains the query,
+     * plus those matching every word of the query as a term prefix,
+     * best BM25 matches first.
+     */
+    public List<TableTennisProduct> search(String query) {
+        String normalized = TextAnalyzer.normalize(query.trim());
+        int[] ranked = resultCache.get(normalized, version);
+        if (ranked == null) {
+            ranked = rank(normalized);
+            resultCache.put(normalized, version, ranked);
+        } else if (parser.parse(normalized).hasConstraints()) {
+            lastQuery = null;
+        } else {
+            remember(normalized, TextAnalyzer.terms(normalized), ranked);
+        }
+
+        List<TableTennisProduct> results = new ArrayList<>(ranked.length);
+        for (int doc : ranked) {
+            results.add(docs.get(doc));
+        }
+        return results;
+    }
+
+    // Finds and orders the ordinals of every product matching the normalized query
+    private int[] rank(String query) {
+        ParsedQuery parsed = parser.parse(query);
+        if (parsed.hasConstraints()) return rankConstrained(parsed);
+
+        List<String> words = TextAnalyzer.terms(query);
+        BitSet matches;
+        if (refinesLastQuery(query, words)) {
+            // Every match must already be among the previous matches, so only re-check those
+            matches = (BitSet) lastMatches.clone();
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                if (!trigrams.contains(doc, query) && !hasAllWords(doc, words)) matches.clear(doc);
+            }
+        } else {
+            matches = textMatches(query, words);
+        }
+        lastQuery = query;
+        lastWords = words;
+        lastMatches = matches;
+        lastVersion = version;
+        return score(matches, words);
+    }
+
+    // Category postings, price range and text matches intersected in one evaluation.
+    // A category filter that leaves nothing is retried with the category word as plain text,
+    // so "butterfly balls" still finds a product whose description mentions both.
+    private int[] rankConstrained(ParsedQuery parsed) {
+        int[] ranked = rankWithin(parsed);
+        if (ranked.length == 0 && parsed.category != null) ranked = rankWithin(parsed.withoutCategory());
+
+        // Not a base for refinement: "under 10" -> "under 100" widens the results
+        lastQuery = null;
+        return ranked;
+    }
+
+    private int[] rankWithin(ParsedQuery parsed) {
+        BitSet matches;
+        if (parsed.category != null) {
+            BitSet inCategory = categoryDocs.get(parsed.category);
+            matches = inCategory != null ? (BitSet) inCategory.clone() : new BitSet();
+        } else {
+            matches = new BitSet(docs.size());
+            matches.set(0, docs.size());
+        }
+        if (parsed.minPrice != null || parsed.maxPrice != null) {
+            double min = parsed.minPrice != null ? parsed.minPrice : Double.NEGATIVE_INFINITY;
+            double max = parsed.maxPrice != null ? parsed.maxPrice : Double.POSITIVE_INFINITY;
+            matches.and(getPriceIndex().range(min, max));
+        }
+
+        List<String> words = TextAnalyzer.terms(parsed.text);
+        if (!parsed.text.isEmpty() && !matches.isEmpty()) {
+            matches.and(textMatches(parsed.text, words));
+        }
+        return score(matches, words);
+    }
+
+    // Products containing the query as a substring or matching all of its words as prefixes
+    private BitSet textMatches(String query, List<String> words) {
+        BitSet matches = trigrams.matches(query);
+        BitSet wordMatches = wordMatches(words);
+        if (wordMatches != null) matches.or(wordMatches);
+        return matches;
+    }
+
+    private int[] score(BitSet matches, List<String> words) {
+        matches.andNot(removed);
+        int matchCount = matches.cardinality();
+        scorer.reset(matches);
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            for (PostingList list : prefixedPostings(word)) {
+                scorer.addTerm(list, matches, matchCount, 1f);
+            }
+            // Synonym hits count for less than the word itself
+            for (PostingList list : prefixedPostings(ALIAS + word)) {
+                scorer.addTerm(list, matches, matchCount, Bm25Scorer.SYNONYM_WEIGHT);
+            }
+            PostingList phrase = phrasePostings(words, w);
+            if (phrase != null) scorer.addTerm(phrase, matches, matchCount, Bm25Scorer.SYNONYM_WEIGHT);
+        }
+        return scorer.rank(matches, RANKED_RESULTS);
+    }
+
+    /**
+     * True if the query extends the previous one such that its matches are a subset of
+     * the previous matches: the text grew at the end and every earlier word only got longer.
+     * A previous query without words only matched as a substring, while the new one's words
+     * can also match elsewhere, so it is never a base. Neither is anything before a query
+     * with a synonym phrase, which can match products that have none of its words.
+     */
+    private boolean refinesLastQuery(String query, List<String> words) {
+        if (lastQuery == null || lastVersion != version || !query.startsWith(lastQuery)) return false;
+        if (lastWords.isEmpty() || words.size() < lastWords.size()) return false;
+        for (int i = 0; i < lastWords.size(); i++) {
+            if (!words.get(i).startsWith(lastWords.get(i))) return false;
+        }
+        for (int i = 0; i < words.size(); i++) {
+            if (synonyms.phraseLengthAt(words, i) > 0) return false;
+        }
+        return true;
+    }
+
+    // Keeps a cached answer as the base for the next refinement
+    private void remember(String query, List<String> words, int[] ranked) {
+        BitSet matches = new BitSet(docs.size());
+        for (int doc : ranked) matches.set(doc);
+        lastQuery = query;
+        lastWords = words;
+        lastMatches = matches;
+        lastVersion = version;
+    }
+
+    // True if every query word is a prefix of one of the product's terms or synonyms
+    private boolean hasAllWords(int doc, List<String> words) {
+        if (words.isEmpty()) return false;
+        String[] terms = docs.get(doc).getSearchFields().distinctTerms;
+        String[] aliases = docAliases.get(doc);
+        for (String word : words) {
+            if (!hasPrefixed(terms, word) && !hasPrefixed(aliases, word)) return false;
+        }
+        return true;
+    }
+
+    private static boolean hasPrefixed(String[] terms, String prefix) {
+        for (String term : terms) {
+            if (term.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Works out which words of each result's name and description the query matched,
+     * from the term offsets recorded when the products were indexed.
+     */
+    public List<MatchSpans> matchSpans(String query, List<TableTennisProduct> results) {
+        ParsedQuery parsed = parser.parse(TextAnalyzer.normalize(query.trim()));
+        List<String> words = TextAnalyzer.terms(parsed.text);
+        List<MatchSpans> spans = new ArrayList<>(results.size());
+        for (TableTennisProduct product : results) {
+            AnalyzedFields fields = TextAnalyzer.analyze(product);
+            spans.add(new MatchSpans(matchedOffsets(fields.nameTerms, fields.nameOffsets, words),
+                    matchedOffsets(fields.descriptionTerms, fields.descriptionOffsets, words)));
+        }
+        return spans;
+    }
+
+    // Offsets of the terms some query word is a prefix of, cut down to the typed part
+    private static int[] matchedOffsets(String[] terms, int[] offsets, List<String> words) {
+        if (offsets.length == 0 || words.isEmpty()) return new int[0];
+
+        int[] matched = new int[offsets.length];
+        int count = 0;
+        for (int i = 0; i < terms.length; i++) {
+            int start = offsets[i * 2];
+            int end = offsets[i * 2 + 1];
+            int length = 0;
+            for (String word : words) {
+                if (word.equals(terms[i])) {
+                    length = end - start; // Whole word, also when stemming shortened it
+                    break;
+                }
+                if (terms[i].startsWith(word)) length = Math.max(length, word.length());
+            }
+            if (length == 0) continue;
+            matched[count++] = start;
+            matched[count++] = Math.min(end, start + length);
+        }
+        return Arrays.copyOf(matched, count);
+    }
+
+    /**
+     * Returns the query with every word that matches no indexed term replaced by the
+     * closest known spelling, or null if there was nothing to correct.
+     */
+    public String correct(String query) {
+        ParsedQuery parsed = parser.parse(TextAnalyzer.normalize(query.trim()));
+        List<String> words = TextAnalyzer.terms(parsed.text);
+        StringBuilder corrected = new StringBuilder();
+        boolean changed = false;
+        for (String word : words) {
+            String replacement = word;
+            if (!hasTermStartingWith(word) && !hasTermStartingWith(ALIAS + word)) {
+                String suggestion = corrector.correct(word);
+                if (suggestion != null) {
+                    replacement = suggestion;
+                    changed = true;
+                }
+            }
+            if (corrected.length() > 0) corrected.append(' ');
+            corrected.append(replacement);
+        }
+        if (!changed) return null;
+
+        String constraints = parsed.constraintsText();
+        if (!constraints.isEmpty()) corrected.append(' ').append(constraints);
+        return corrected.toString();
+    }
+
+    private boolean hasTermStartingWith(String prefix) {
+        String[] terms = getSortedTerms();
+        int i = prefixStart(terms, prefix);
+        return i < terms.length && terms[i].startsWith(prefix);
+    }
+
+    /**
+     * Returns up to {@code limit} completions for what the user has typed so far,
+     * ranked by how popular the products behind them are.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return suggestions.complete(TextAnalyzer.normalize(prefix), limit);
+    }
+
+    /**
+     * Returns the products matching every word of the query, or null if it has no words.
+     * Each query word matches any indexed term or synonym it is a prefix of, so partial
+     * words like "butter" still find "Butterfly". The words of a synonym phrase match
+     * together, either through the phrase or each on its own.
+     */
+    private BitSet wordMatches(List<String> words) {
+        BitSet matches = null;
+        for (int i = 0; i < words.size(); ) {
+            int phraseLength = synonyms.phraseLengthAt(words, i);
+            BitSet unitMatches;
+            if (phraseLength > 0) {
+                unitMatches = prefixMatches(words.get(i));
+                for (int j = i + 1; j < i + phraseLength; j++) unitMatches.and(prefixMatches(words.get(j)));
+                phrasePostings(words, i).addTo(unitMatches);
+                i += phraseLength;
+            } else {
+                unitMatches = prefixMatches(words.get(i++));
+            }
+
+            if (matches == null) {
+                matches = unitMatches;
+            } else {
+                matches.and(unitMatches);
+            }
+            if (matches.isEmpty()) break;
+        }
+        return matches;
+    }
+
+    // Unions the postings of every term and single-word synonym starting with the given prefix
+    private BitSet prefixMatches(String prefix) {
+        BitSet result = new BitSet(docs.size());
+        for (PostingList list : prefixedPostings(prefix)) list.addTo(result);
+        for (PostingList list : prefixedPostings(ALIAS + prefix)) list.addTo(result);
+        return result;
+    }
+
+    // Postings of the dictionary keys starting with the given prefix, phrase keys excluded
+    private List<PostingList> prefixedPostings(String prefix) {
+        List<PostingList> lists = new ArrayList<>();
+        String[] terms = getSortedTerms();
+        for (int i = prefixStart(terms, prefix); i < terms.length && terms[i].startsWith(prefix); i++) {
+            if (!SynonymTable.isPhraseKey(terms[i])) lists.add(postings.get(terms[i]));
+        }
+        return lists;
+    }
+
+    // Postings of the synonym phrase spelled out by the query words from the given one on,
+    // empty if the phrase is in no product; null if no phrase starts there
+    private PostingList phrasePostings(List<String> words, int start) {
+        int length = synonyms.phraseLengthAt(words, start);
+        if (length == 0) return null;
+        PostingList list = postings.get(ALIAS + SynonymTable.key(words.subList(start, start + length)));
+        return list != null ? list : new PostingList();
+    }
+
+    // Position of the first term that could start with the prefix
+    private static int prefixStart(String[] terms, String prefix) {
+        int i = Arrays.binarySearch(terms, prefix);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    private PriceIndex getPriceIndex() {
+        if (priceIndex == null) priceIndex = PriceIndex.of(docs);
+        return priceIndex;
+    }
+
+    // Products without an ID can't be paged to, so they are left out
+    private int[] getCategoryIdOrder(String category) {
+        int[] order = categoryIdOrder.get(category);
+        if (order != null) return order;
+        BitSet inCategory = categoryDocs.get(category);
+        if (inCategory == null) return new int[0];
+
+        List<Integer> ordinals = new ArrayList<>(inCategory.cardinality());
+        for (int doc = inCategory.nextSetBit(0); doc >= 0; doc = inCategory.nextSetBit(doc + 1)) {
+            if (docs.get(doc).getId() != null) ordinals.add(doc);
+        }
+        ordinals.sort((a, b) -> docs.get(a).getId().compareTo(docs.get(b).getId()));
+        order = new int[ordinals.size()];
+        for (int i = 0; i < order.length; i++) order[i] = ordinals.get(i);
+        categoryIdOrder.put(category, order);
+        return order;
+    }
+
+    private String[] getSortedTerms() {
+        if (sortedTerms == null) {
+            sortedTerms = postings.keySet().toArray(new String[0]);
+            Arrays.sort(sortedTerms);
+        }
+        return sortedTerms;
+    }
+
+    // Records the product under its category, and the category name as a query keyword
+    private void addCategory(int doc, TableTennisProduct product) {
+        if (product.getCategoryID() == null) return;
+        String category = TextAnalyzer.normalize(product.getCategoryID());
+        BitSet inCategory = categoryDocs.get(category);
+        if (inCategory == null) {
+            inCategory = new BitSet();
+            categoryDocs.put(category, inCategory);
+
+            List<String> terms = TextAnalyzer.terms(category);
+            if (terms.size() == 1) categoriesByTerm.put(terms.get(0), category);
+        }
+        inCategory.set(doc);
+        categoryIdOrder.remove(category);
+    }
+
+    // Every product lends its popularity to its name, tags and category suggestions.
+    // A sign of -1 takes that back again when the product is removed.
+    private void addSuggestions(TableTennisProduct product, int sign) {
+        long weight = sign * (product.getViews() + 1L);
+
+        String name = product.getName();
+        if (name != null) {
+            // Also key the name from each later word so "tenergy" completes "Butterfly Tenergy".
+            // The end marker keeps names from sharing a node with an identical tag or category.
+            String key = TextAnalyzer.normalize(name) + NAME_END;
+            for (int i = 0; i < key.length(); i++) {
+                boolean wordStart = Character.isLetterOrDigit(key.charAt(i))
+                        && (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)));
+                if (wordStart) suggestions.add(key.substring(i), name, weight);
+            }
+        }
+        if (product.getTags() != null) {
+            for (String tag : product.getTags()) {
+                if (tag != null) suggestions.add(TextAnalyzer.normalize(tag), tag, weight);
+            }
+        }
+        if (product.getCategoryID() != null) {
+            suggestions.add(TextAnalyzer.normalize(product.getCategoryID()), product.getCategoryID(), weight);
+        }
+    }
+
+    // Adds the words of the product's name, tags and category to the spelling corrector
+    private void addSpellings(TableTennisProduct product, AnalyzedFields fields) {
+        Set<String> words = new LinkedHashSet<>();
+        Collections.addAll(words, fields.nameTerms);
+        Collections.addAll(words, fields.tagTerms);
+        if (product.getCategoryID() != null) words.addAll(TextAnalyzer.terms(product.getCategoryID()));
+        for (String word : words) corrector.add(word, 1);
+    }
+
+    // Every single-word synonym the product is posted under, across all its fields
+    private String[] aliasesOf(AnalyzedFields fields) {
+        if (synonyms.isEmpty()) return new String[0];
+        // Per field, since phrases only match within one field
+        Set<String> aliases = new LinkedHashSet<>();
+        addWords(aliases, synonyms.aliases(fields.nameTerms));
+        addWords(aliases, synonyms.aliases(fields.tagTerms));
+        addWords(aliases, synonyms.aliases(fields.descriptionTerms));
+        return aliases.toArray(new String[0]);
+    }
+
+    private static void addWords(Set<String> aliases, String[] keys) {
+        for (String key : keys) {
+            if (!SynonymTable.isPhraseKey(key)) aliases.add(key);
+        }
+    }
+
+    private static int[] fieldLengths(AnalyzedFields fields) {
+        int[] lengths = new int[Bm25Scorer.FIELD_COUNT];
+        lengths[Bm25Scorer.FIELD_NAME] = fields.nameTerms.length;
+        lengths[Bm25Scorer.FIELD_TAGS] = fields.tagTerms.length;
+        lengths[Bm25Scorer.FIELD_DESCRIPTION] = fields.descriptionTerms.length;
+        return lengths;
+    }
+
+    // Adds the synonym keys of one field to the term dictionary, apart from its own terms
+    private void indexAliases(String[] keys, int doc, int field) {
+        String[] terms = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) terms[i] = ALIAS + keys[i];
+        indexTerms(terms, doc, field);
+    }
+
+    // Adds one field's terms to the term dictionary
+    private void indexTerms(String[] terms, int doc, int field) {
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(term, list);
+                sortedTerms = null;
+            }
+            list.add(doc, field);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.app.Search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls category and price intent out of a normalized search query.
+ * Understands "under 100", "below $50", "over 200", "200-500", "100 to 300",
+ * "between 20 and 40" and category words ("bats", "balls", ...). A category word is
+ * only a filter next to other words or a price: on its own it stays a text search,
+ * so "balls" still finds a ball robot listed under another category. Neither is one that
+ * is part of a synonym phrase, so "table tennis" is not read as tables about "tennis".
+ */
+public class QueryParser {
+    private static final String START = "(?<![\\p{L}\\p{N}.])";
+    private static final String END = "(?![\\p{L}\\p{N}])";
+    private static final String PRICE = "\\$?(\\d+(?:\\.\\d+)?)";
+
+    private static final Pattern BETWEEN = Pattern.compile(
+            START + "between\\s+" + PRICE + "\\s+and\\s+" + PRICE + END);
+    private static final Pattern RANGE = Pattern.compile(
+            START + "(?:from\\s+)?" + PRICE + "\\s*(?:-|to\\s)\\s*" + PRICE + END);
+    private static final Pattern AT_MOST = Pattern.compile(
+            START + "(?:under|below|less than|cheaper than|up to|max|<=?)\\s*" + PRICE + END);
+    private static final Pattern AT_LEAST = Pattern.compile(
+            START + "(?:over|above|more than|at least|from|min|>=?)\\s*" + PRICE + END);
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    // Analyzed single-term category name -> normalized category ID
+    private final Map<String, String> categoriesByTerm;
+
+    // Phrases whose words are never taken as a category
+    private final SynonymTable synonyms;
+
+    public QueryParser(Map<String, String> categoriesByTerm) {
+        this(categoriesByTerm, SynonymTable.EMPTY);
+    }
+
+    public QueryParser(Map<String, String> categoriesByTerm, SynonymTable synonyms) {
+        this.categoriesByTerm = categoriesByTerm;
+        this.synonyms = synonyms;
+    }
+
+    /**
+     * Splits a normalized query into its free text and constraints.
+     */
+    public ParsedQuery parse(String query) {
+        String rest = query;
+        Double min = null, max = null;
+
+        Matcher m = BETWEEN.matcher(rest);
+        if (!m.find()) {
+            m = RANGE.matcher(rest);
+            if (!m.find()) m = null;
+        }
+        if (m != null) {
+            double a = Double.parseDouble(m.group(1));
+            double b = Double.parseDouble(m.group(2));
+            min = Math.min(a, b);
+            max = Math.max(a, b);
+            rest = cut(rest, m);
+        } else {
+            m = AT_MOST.matcher(rest);
+            if (m.find()) {
+                max = Double.parseDouble(m.group(1));
+                rest = cut(rest, m);
+            }
+            m = AT_LEAST.matcher(rest);
+            if (m.find()) {
+                min = Double.parseDouble(m.group(1));
+                rest = cut(rest, m);
+            }
+        }
+
+        List<String> terms = new ArrayList<>();
+        List<int[]> spans = new ArrayList<>();
+        Matcher word = WORD.matcher(rest);
+        while (word.find()) {
+            terms.add(TextAnalyzer.stem(word.group()));
+            spans.add(new int[]{word.start(), word.end()});
+        }
+
+        String text = clean(rest);
+        String category = null;
+        boolean hasPrice = min != null || max != null;
+        if (terms.size() > 1 || hasPrice) {
+            for (int i = 0; i < terms.size(); i++) {
+                int phraseLength = synonyms.phraseLengthAt(terms, i);
+                if (phraseLength > 0) {
+                    i += phraseLength - 1;
+                    continue;
+                }
+                category = categoriesByTerm.get(terms.get(i));
+                if (category != null) {
+                    rest = rest.substring(0, spans.get(i)[0]) + " " + rest.substring(spans.get(i)[1]);
+                    break;
+                }
+            }
+        }
+
+        return new ParsedQuery(clean(rest), category, min, max, text);
+    }
+
+    private static String clean(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    private static String cut(String text, Matcher match) {
+        return text.substring(0, match.start()) + " " + text.substring(match.end());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.app.Search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of ranked search results, stored as product ordinals.
+ * Entries are keyed by the normalized query plus the catalog version they were computed
+ * against, and everything is dropped as soon as a newer catalog version shows up.
+ */
+public class SearchResultCache {
+    private final int maxEntries;
+    private final int maxOrdinals;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedOrdinals;
+    private long version;
+
+    /**
+     * @param maxEntries  maximum number of cached queries
+     * @param maxOrdinals maximum number of ordinals held across all entries (4 bytes each)
+     */
+    public SearchResultCache(int maxEntries, int maxOrdinals) {
+        this.maxEntries = maxEntries;
+        this.maxOrdinals = maxOrdinals;
+    }
+
+    /**
+     * Returns the cached ordinals for the query, or null if absent or stale.
+     */
+    public int[] get(String normalizedQuery, long catalogVersion) {
+        if (catalogVersion != version) return null;
+        return entries.get(normalizedQuery);
+    }
+
+    public void put(String normalizedQuery, long catalogVersion, int[] ordinals) {
+        if (catalogVersion != version) {
+            clear();
+            version = catalogVersion;
+        }
+        if (ordinals.length > maxOrdinals) return;
+
+        int[] previous = entries.put(normalizedQuery, ordinals);
+        if (previous != null) cachedOrdinals -= previous.length;
+        cachedOrdinals += ordinals.length;
+
+        // Evict least recently used entries until both limits hold again
+        Iterator<Map.Entry<String, int[]>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedOrdinals > maxOrdinals) && it.hasNext()) {
+            cachedOrdinals -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        cachedOrdinals = 0;
+    }
+}
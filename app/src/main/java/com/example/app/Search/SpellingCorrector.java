@@ -0,0 +1,130 @@
+package com.example.app.Search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SymSpell-style spelling corrector over the index vocabulary.
+ * Every word is stored under each string obtainable by deleting up to MAX_EDITS of its
+ * characters. A misspelling is corrected by generating its own deletions and looking
+ * them up, so a lookup costs a few dozen hash probes instead of a scan of the vocabulary.
+ */
+public class SpellingCorrector {
+    private static final int MAX_EDITS = 2;
+
+    // Words shorter than this only get one edit, two would turn them into almost anything
+    private static final int MIN_LENGTH_FOR_TWO_EDITS = 6;
+
+    // Word -> how many products contain it, used to break ties
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    // Deletion -> the vocabulary words producing it
+    private final Map<String, List<String>> deletes = new HashMap<>();
+
+    /**
+     * Adds a vocabulary word found in {@code count} more products.
+     * Only a word's first addition generates its deletions.
+     */
+    public void add(String word, int count) {
+        Integer previous = counts.get(word);
+        counts.put(word, previous != null ? previous + count : count);
+        if (previous != null) return;
+
+        Set<String> variants = new HashSet<>();
+        variants.add(word);
+        addDeletes(word, maxEdits(word), variants);
+        for (String variant : variants) {
+            List<String> words = deletes.get(variant);
+            if (words == null) {
+                words = new ArrayList<>(1);
+                deletes.put(variant, words);
+            }
+            words.add(word);
+        }
+    }
+
+    /**
+     * Returns the closest vocabulary word to the given analyzed term, preferring fewer
+     * edits and then more common words, or null if nothing is within reach.
+     */
+    public String correct(String term) {
+        if (counts.containsKey(term)) return term;
+
+        int limit = maxEdits(term);
+        Set<String> variants = new HashSet<>();
+        variants.add(term);
+        addDeletes(term, limit, variants);
+
+        String best = null;
+        int bestDistance = limit + 1;
+        int bestCount = 0;
+        for (String variant : variants) {
+            List<String> candidates = deletes.get(variant);
+            if (candidates == null) continue;
+            for (String candidate : candidates) {
+                if (Math.abs(candidate.length() - term.length()) > limit) continue;
+                int distance = distance(term, candidate, Math.min(limit, bestDistance));
+                if (distance > limit) continue;
+                int count = counts.get(candidate);
+                if (distance < bestDistance || (distance == bestDistance && count > bestCount)) {
+                    best = candidate;
+                    bestDistance = distance;
+                    bestCount = count;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int maxEdits(String word) {
+        return word.length() >= MIN_LENGTH_FOR_TWO_EDITS ? MAX_EDITS : 1;
+    }
+
+    private static void addDeletes(String word, int edits, Set<String> out) {
+        if (edits == 0 || word.length() <= 1) return;
+        for (int i = 0; i < word.length(); i++) {
+            String deleted = word.substring(0, i) + word.substring(i + 1);
+            if (out.add(deleted)) addDeletes(deleted, edits - 1, out);
+        }
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions),
+     * or {@code limit + 1} as soon as it is known to exceed the limit.
+     */
+    static int distance(String a, String b, int limit) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > limit) return limit + 1;
+
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) previous[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) return limit + 1;
+
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], limit + 1);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.app.Search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Prefix trie of search suggestions (product names, tags and categories).
+ * Every node remembers the best weight in its subtree, so the top completions
+ * for a prefix are found best-first without visiting the whole subtree.
+ */
+public class SuggestionTrie {
+
+    private static class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        String suggestion; // Display text if a suggestion ends here
+        long weight;       // Weight of that suggestion
+        long maxWeight;    // Best weight anywhere below this node
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node getOrAddChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) return children[i];
+
+            // Keep keys sorted so lookups stay a binary search
+            i = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            newKeys[i] = c;
+            newChildren[i] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[i];
+        }
+    }
+
+    // Queue entry: either a subtree to expand or a finished suggestion
+    private static class Candidate {
+        final Node node;
+        final long priority;
+        final boolean terminal;
+
+        Candidate(Node node, long priority, boolean terminal) {
+            this.node = node;
+            this.priority = priority;
+            this.terminal = terminal;
+        }
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Adds weight to the suggestion reachable under the given normalized key.
+     * Repeated calls for the same key accumulate their weights; a negative weight takes
+     * back an earlier add, and the suggestion goes away once nothing is left of its weight.
+     */
+    public void add(String key, String suggestion, long weight) {
+        if (key.isEmpty()) return;
+
+        Node node = root;
+        List<Node> path = new ArrayList<>();
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrAddChild(key.charAt(i));
+            path.add(node);
+        }
+        if (node.suggestion == null) node.suggestion = suggestion;
+        node.weight += weight;
+        if (node.weight <= 0) {
+            // maxWeight on the path is left as is: too high is still a valid bound for complete()
+            node.suggestion = null;
+            node.weight = 0;
+            return;
+        }
+
+        for (Node n : path) {
+            n.maxWeight = Math.max(n.maxWeight, node.weight);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} distinct suggestions under the normalized prefix,
+     * highest weight first.
+     */
+    public List<String> complete(String prefix, int limit) {
+        Set<String> results = new LinkedHashSet<>();
+        if (prefix.isEmpty() || limit <= 0) return new ArrayList<>(results);
+
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) return new ArrayList<>(results);
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(
+                (a, b) -> Long.compare(b.priority, a.priority));
+        queue.add(new Candidate(node, node.maxWeight, false));
+
+        while (!queue.isEmpty() && results.size() < limit) {
+            Candidate next = queue.poll();
+            if (next.terminal) {
+                results.add(next.node.suggestion);
+                continue;
+            }
+            if (next.node.suggestion != null) {
+                queue.add(new Candidate(next.node, next.node.weight, true));
+            }
+            for (Node child : next.node.children) {
+                queue.add(new Candidate(child, child.maxWeight, false));
+            }
+        }
+        return new ArrayList<>(results);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.app.Search;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups of interchangeable search terms ("bat", "paddle", "racket").
+ * The index uses it at build time to post every product under the aliases of the
+ * words it contains, so synonyms cost nothing extra when a query runs.
+ *
+ * A phrase of several words is an alias as a whole: a product saying "ping pong" is
+ * posted under the phrase key "table tennis", never under "table" or "tennis" alone.
+ *
+ * The source format is one group per line, phrases separated by commas,
+ * with blank lines and lines starting with '#' ignored.
+ */
+public class SynonymTable {
+    public static final SynonymTable EMPTY = new SynonymTable(new ArrayList<>());
+
+    // One analyzed phrase of a group
+    private static class Phrase {
+        final String[] terms;
+        final int group;
+
+        Phrase(String[] terms, int group) {
+            this.terms = terms;
+            this.group = group;
+        }
+    }
+
+    // Group -> the key of each of its phrases, see key()
+    private final List<String[]> groupKeys = new ArrayList<>();
+
+    // First term of a phrase -> the phrases starting with it
+    private final Map<String, List<Phrase>> phrasesByFirstTerm = new HashMap<>();
+
+    private SynonymTable(List<List<String>> groups) {
+        for (List<String> group : groups) {
+            int id = groupKeys.size();
+            Set<String> keys = new LinkedHashSet<>();
+            for (String phrase : group) {
+                List<String> phraseTerms = TextAnalyzer.terms(phrase);
+                if (phraseTerms.isEmpty()) continue;
+                keys.add(key(phraseTerms));
+
+                List<Phrase> phrases = phrasesByFirstTerm.get(phraseTerms.get(0));
+                if (phrases == null) {
+                    phrases = new ArrayList<>();
+                    phrasesByFirstTerm.put(phraseTerms.get(0), phrases);
+                }
+                phrases.add(new Phrase(phraseTerms.toArray(new String[0]), id));
+            }
+            groupKeys.add(keys.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Reads a synonym table in the resource file format described above.
+     */
+    public static SynonymTable parse(Reader source) throws IOException {
+        List<List<String>> groups = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            List<String> group = new ArrayList<>();
+            for (String phrase : line.split(",")) {
+                if (!phrase.trim().isEmpty()) group.add(phrase.trim());
+            }
+            if (group.size() > 1) groups.add(group);
+        }
+        return new SynonymTable(groups);
+    }
+
+    public boolean isEmpty() {
+        return groupKeys.isEmpty();
+    }
+
+    /**
+     * The single term a phrase is indexed and looked up under: the term itself for a
+     * one-word phrase, otherwise its terms joined by spaces. Analyzed terms never contain
+     * spaces, so a phrase key can't be mistaken for a word.
+     */
+    public static String key(List<String> phraseTerms) {
+        return phraseTerms.size() == 1 ? phraseTerms.get(0) : String.join(" ", phraseTerms);
+    }
+
+    public static boolean isPhraseKey(String key) {
+        return key.indexOf(' ') >= 0;
+    }
+
+    /**
+     * Returns how many query terms, from {@code start} on, spell out a phrase of several
+     * words from the table, or 0 if none does. The longest such phrase wins.
+     */
+    public int phraseLengthAt(List<String> terms, int start) {
+        List<Phrase> phrases = phrasesByFirstTerm.get(terms.get(start));
+        if (phrases == null) return 0;
+        int longest = 0;
+        for (Phrase phrase : phrases) {
+            if (phrase.terms.length > Math.max(longest, 1) && occursAt(phrase.terms, terms, start)) {
+                longest = phrase.terms.length;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Returns the keys a field should also be indexed under: those of every phrase in a
+     * group with a phrase occurring in the field, minus the terms the field already has.
+     */
+    public String[] aliases(String[] terms) {
+        if (isEmpty() || terms.length == 0) return new String[0];
+
+        Set<String> aliases = null;
+        for (int i = 0; i < terms.length; i++) {
+            List<Phrase> phrases = phrasesByFirstTerm.get(terms[i]);
+            if (phrases == null) continue;
+            for (Phrase phrase : phrases) {
+                if (!occursAt(phrase.terms, terms, i)) continue;
+                if (aliases == null) aliases = new LinkedHashSet<>();
+                Collections.addAll(aliases, groupKeys.get(phrase.group));
+            }
+        }
+        if (aliases == null) return new String[0];
+
+        for (String term : terms) aliases.remove(term);
+        return aliases.toArray(new String[0]);
+    }
+
+    private static boolean occursAt(String[] phrase, String[] terms, int start) {
+        return occursAt(phrase, Arrays.asList(terms), start);
+    }
+
+    private static boolean occursAt(String[] phrase, List<String> terms, int start) {
+        if (start + phrase.length > terms.size()) return false;
+        for (int i = 0; i < phrase.length; i++) {
+            if (!phrase[i].equals(terms.get(start + i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Text analysis shared by indexing and querying.
+ * Lowercases with Locale.ROOT, folds accents ("Résumé" -> "resume"), splits on
+ * non-alphanumerics and lightly stems plurals ("rubbers" -> "rubber").
+ */
+public final class TextAnalyzer {
+
+    private TextAnalyzer() {}
+
+    /**
+     * Returns the product's analyzed fields, computing and storing them on first use.
+     */
+    public static AnalyzedFields analyze(TableTennisProduct product) {
+        AnalyzedFields fields = product.getSearchFields();
+        if (fields != null) return fields;
+
+        StringBuilder text = new StringBuilder();
+        Set<String> distinct = new LinkedHashSet<>();
+        String[] nameTerms = analyzeField(product.getName(), text, distinct);
+        String[] descriptionTerms = analyzeField(product.getDescription(), text, distinct);
+
+        List<String> tagTerms = new ArrayList<>();
+        if (product.getTags() != null) {
+            for (String tag : product.getTags()) {
+                Collections.addAll(tagTerms, analyzeField(tag, text, distinct));
+            }
+        }
+
+        fields = new AnalyzedFields(text.toString(), nameTerms, descriptionTerms,
+                tagTerms.toArray(new String[0]), distinct.toArray(new String[0]),
+                offsets(product.getName(), nameTerms.length),
+                offsets(product.getDescription(), descriptionTerms.length));
+        product.setSearchFields(fields);
+        return fields;
+    }
+
+    private static String[] analyzeField(String value, StringBuilder text, Set<String> distinct) {
+        if (value == null) return new String[0];
+        String normalized = normalize(value);
+        if (text.length() > 0) text.append(TrigramIndex.FIELD_SEPARATOR);
+        text.append(normalized);
+
+        List<String> terms = termsOfNormalized(normalized);
+        distinct.addAll(terms);
+        return terms.toArray(new String[0]);
+    }
+
+    /**
+     * Start/end offsets of each word of the original text. Normalizing keeps word
+     * boundaries where they are, so the i-th pair belongs to the i-th term.
+     */
+    static int[] offsets(String value, int termCount) {
+        if (value == null || termCount == 0) return new int[0];
+        int[] offsets = new int[termCount * 2];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean wordChar = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (count == termCount) return new int[0];
+                offsets[count * 2] = start;
+                offsets[count * 2 + 1] = i;
+                count++;
+                start = -1;
+            }
+        }
+        return count == termCount ? offsets : new int[0];
+    }
+
+    /**
+     * Lowercases and strips accents. Plain lowercase ASCII comes back as the same instance.
+     */
+    public static String normalize(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) return text.toLowerCase(Locale.ROOT);
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) folded.append(c);
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes the text and splits it into stemmed alphanumeric terms.
+     */
+    public static List<String> terms(String text) {
+        if (text == null) return new ArrayList<>();
+        return termsOfNormalized(normalize(text));
+    }
+
+    private static List<String> termsOfNormalized(String normalized) {
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(stem(normalized.substring(start, i)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Light plural stemming: "accessories" -> "accessory", "boxes" -> "box", "balls" -> "ball".
+     * Short words and endings like "-ss", "-us" and "-is" are left alone.
+     */
+    static String stem(String term) {
+        int n = term.length();
+        if (n <= 3 || term.charAt(n - 1) != 's') return term;
+
+        if (term.endsWith("ies") && n > 4) return term.substring(0, n - 3) + "y";
+        if (term.endsWith("sses") || term.endsWith("ches") || term.endsWith("shes")
+                || term.endsWith("xes") || term.endsWith("zes")) {
+            return term.substring(0, n - 2);
+        }
+        if (term.endsWith("ss") || term.endsWith("us") || term.endsWith("is")) return term;
+        return term.substring(0, n - 1);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.app.Search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram index that answers arbitrary substring queries.
+ * Candidates are found by intersecting the posting lists of the query's trigrams
+ * and then verified against the stored text, so only plausible products are scanned.
+ * One and two character grams are indexed too, so the short queries typed first are
+ * answered straight from their posting list rather than by scanning every product.
+ */
+public class TrigramIndex {
+    // Separates fields inside a product's text so matches never span two fields
+    static final char FIELD_SEPARATOR = '\u0000';
+
+    // Ordinal -> normalized searchable text of that product
+    private final List<String> texts = new ArrayList<>();
+
+    // Packed gram of up to three chars -> ordinals of the products whose text contains it
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    /**
+     * Indexes the normalized text of the next product ordinal.
+     */
+    public void add(String text) {
+        int doc = texts.size();
+        texts.add(text);
+        for (int i = 0; i < text.length(); i++) {
+            for (int n = 1; n <= 3 && i + n <= text.length(); n++) {
+                if (text.charAt(i + n - 1) == FIELD_SEPARATOR) break;
+                long key = pack(text, i, n);
+                PostingList list = postings.get(key);
+                if (list == null) {
+                    list = PostingList.withoutFreqs();
+                    postings.put(key, list);
+                }
+                list.add(doc);
+            }
+        }
+    }
+
+    // Restores a product's text whose postings are loaded separately from a snapshot
+    void addTextOnly(String text) {
+        texts.add(text);
+    }
+
+    void putPostings(long key, PostingList list) {
+        postings.put(key, list);
+    }
+
+    Map<Long, PostingList> postings() {
+        return postings;
+    }
+
+    /**
+     * Returns the ordinals of every product whose text contains the normalized query.
+     */
+    public BitSet matches(String query) {
+        BitSet result = new BitSet(texts.size());
+        if (query.isEmpty()) return result;
+
+        // Up to three chars the query is a gram itself, and its posting list is the answer
+        if (query.length() <= 3) {
+            PostingList list = postings.get(pack(query, 0, query.length()));
+            if (list != null) list.addTo(result);
+            return result;
+        }
+
+        // Collect the query's posting lists, any missing trigram means no match
+        List<PostingList> lists = new ArrayList<>();
+        PostingList smallest = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            PostingList list = postings.get(pack(query, i, 3));
+            if (list == null) return result;
+            lists.add(list);
+            if (smallest == null || list.size() < smallest.size()) smallest = list;
+        }
+
+        // Walk the shortest list, probe the others, then verify the survivors
+        for (int i = 0; i < smallest.size(); i++) {
+            int doc = smallest.get(i);
+            boolean inAll = true;
+            for (PostingList list : lists) {
+                if (list != smallest && !list.contains(doc)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll && texts.get(doc).contains(query)) {
+                result.set(doc);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Verifies a single product against the normalized query without using postings.
+     */
+    public boolean contains(int doc, String query) {
+        return texts.get(doc).contains(query);
+    }
+
+    // Packs the n (1 to 3) chars at i and their count into one key. The bits are then mixed:
+    // Long.hashCode of the plain packing folds the first char onto the others, which piles
+    // the keys into a few HashMap bins.
+    private static long pack(String text, int i, int n) {
+        long key = n;
+        for (int j = 0; j < n; j++) key = (key << 16) | text.charAt(i + j);
+        // MurmurHash3's 64-bit finalizer, a bijection, so distinct grams keep distinct keys
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
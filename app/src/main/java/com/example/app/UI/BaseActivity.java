@@ -9,6 +9,8 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.viewbinding.ViewBinding;
 
+import com.example.app.Data.FirestoreRepository;
+import com.example.app.Data.ViewCounterBuffer;
 import com.example.app.databinding.ActivityBaseBinding;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
@@ -56,6 +58,28 @@ public abstract class BaseActivity<ContentBinding extends ViewBinding>
 
         // Clicking the logo takes you home (MainActivity)
         setupLogoNavigation();
+
+        // Start loading the saved product catalog early so the first query is instant
+        FirestoreRepository.getInstance().prepareCatalog(this);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        // Back in use: send buffered product views on a timer again
+        ViewCounterBuffer.getInstance(this).resume();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // The app went to the background: send buffered product views while it still can,
+        // and stop waking up to send more
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            ViewCounterBuffer.getInstance(this).pause();
+        }
     }
 
     /**
@@ -11,6 +11,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.app.Auth.AuthManager;
 import com.example.app.Data.FirestoreRepository;
+import com.example.app.Data.ViewCounterBuffer;
 import com.example.app.Model.TableTennisProduct;
 import com.example.app.R;
 import com.example.app.Adapters.ImageSliderAdapter;
@@ -252,9 +253,9 @@ public class DetailsActivity extends BaseActivity<ActivityDetailsBinding> {
         });
     }
 
-    /** Logs a view count increase in Firestore. */
+    /** Counts a view; buffered views are sent to Firestore in batches. */
     private void incrementViews(String pid) {
-        firestoreRepository.incrementProductViews(pid);
+        ViewCounterBuffer.getInstance(this).record(pid);
     }
 
     /** Sets text fields: name, desc, price, and category. */
@@ -8,31 +8,56 @@ import android.view.View;
 import android.widget.PopupMenu;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.app.Data.FirestoreRepository;
 import com.example.app.Model.TableTennisProduct;
 import com.example.app.R;
+import com.example.app.Search.PriceIndex;
 import com.example.app.Adapters.ProductAdapter;
 import com.example.app.databinding.ActivityListBinding;
 import com.example.app.Util.ErrorHandler;
 import com.example.app.Util.NavigationUtils;
+import com.example.app.Util.PriceRangeDialog;
 import com.example.app.Util.ToastUtils;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 
 /**
  * Displays a list of products based on the selected category.
- * Supports sorting (price/name) and navigating to product details.
+ * Supports sorting (price/name), filtering by price range and navigating to product details.
+ * Products are fetched a page at a time as the user nears the end of the list; sorting and
+ * price filtering need the whole category, so they fetch the remaining pages first.
  */
 public class ListActivity extends BaseActivity<ActivityListBinding> {
     private static final String TAG = "ListActivity";
+    private static final int PAGE_SIZE = 20;
 
+    // Fetch the next page once the last visible row is this close to the end
+    private static final int PREFETCH_ROWS = 5;
+
+    // Everything loaded for the category, and the filtered/sorted rows shown by the adapter
+    private final List<TableTennisProduct> allProducts = new ArrayList<>();
     private final List<TableTennisProduct> productList = new ArrayList<>();
     private ProductAdapter adapter;
 
+    // Price order of allProducts, backs the price range filter and price sorting. Rebuilt lazily.
+    private PriceIndex priceIndex;
+    private SortOption sortOption;      // Null keeps the order products were loaded in
+    private Double minPrice, maxPrice;  // Null when no price range is set
+
+    // Paging state
+    private String categoryID;
+    private String lastLoaded;             // ID of the last product paged in, null before the first
+    private boolean loadingPage;
+    private boolean hasMorePages = true;
+    private Runnable pendingAction;        // Waiting for the whole category to load
+
     @Override
     protected ActivityListBinding inflateContentBinding() {
         return ActivityListBinding.inflate(getLayoutInflater());
@@ -50,10 +75,13 @@ public class ListActivity extends BaseActivity<ActivityListBinding> {
         // If category is missing, we cancel and show a toast
         if (!setupTitleAndBackButton()) return;
 
+        categoryID = getIntent().getStringExtra("categoryID");
         setupAdapter();
-        loadProducts();
+        loadNextPage();
 
         binding.btnSort.setOnClickListener(this::showSortMenu);
+        binding.btnPrice.setOnClickListener(v -> withAllProducts(this::showPriceRangeDialog));
+        binding.btnClearPrice.setOnClickListener(v -> setPriceRange(null, null));
     }
 
     /**
@@ -98,32 +126,112 @@ public class ListActivity extends BaseActivity<ActivityListBinding> {
             }
         });
 
-        binding.list.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        binding.list.setLayoutManager(layoutManager);
         binding.list.setAdapter(adapter);
+
+        // Also called with dy == 0 after layout, so a page too short to scroll pulls in the next
+        binding.list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
     /**
-     * Loads all products for the given category from Firestore.
-     * Updates the adapter once data is loaded.
+     * Fetches the next page of the category, if there is one and none is loading.
      */
-    private void loadProducts() {
-        String categoryID = getIntent().getStringExtra("categoryID");
+    private void loadNextPage() {
+        if (loadingPage || !hasMorePages || pendingAction != null) return;
+        loadingPage = true;
+        FirestoreRepository.getInstance().getProductsByCategoryPage(categoryID, lastLoaded, PAGE_SIZE,
+                new FirestoreRepository.ProductPageCallback() {
+                    @Override
+                    public void onSuccess(List<TableTennisProduct> products, String lastId, boolean hasMore) {
+                        loadingPage = false;
+                        // The whole category replaced the pages meanwhile, or is about to
+                        if (!hasMorePages || pendingAction != null) return;
+                        lastLoaded = lastId;
+                        hasMorePages = hasMore;
+                        int shown = productList.size();
+                        addProducts(products);
+                        if (productList.size() == shown) {
+                            // Nothing new on screen (deleted or filtered out), so scrolling won't
+                            // ask for the next page; fetch it now
+                            loadNextPage();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        loadingPage = false;
+                        if (lastLoaded == null) {
+                            // Nothing shown yet: the shared catalog can still answer from its saved copy
+                            hasMorePages = false;
+                            loadAllProducts();
+                        } else {
+                            ErrorHandler.handleFirestoreError(ListActivity.this, "load products", e);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Loads the whole category from the shared product catalog in one go.
+     */
+    private void loadAllProducts() {
         FirestoreRepository.getInstance()
                 .getProductsByCategory(categoryID, new FirestoreRepository.ProductsCallback() {
                     @Override
                     public void onSuccess(List<TableTennisProduct> products) {
-                        productList.clear();
-                        productList.addAll(products);
-                        adapter.notifyDataSetChanged();
+                        hasMorePages = false;
+                        allProducts.clear();
+                        allProducts.addAll(products);
+                        priceIndex = null;
+                        applyFilterAndSort();
+                        if (pendingAction != null) withAllProducts(pendingAction);
                     }
 
                     @Override
                     public void onError(Exception e) {
+                        pendingAction = null;
                         ErrorHandler.handleFirestoreError(ListActivity.this, "load products", e);
                     }
                 });
     }
 
+    // Appends a page, touching only the new rows unless a sort or filter reorders them
+    private void addProducts(List<TableTennisProduct> page) {
+        allProducts.addAll(page);
+        priceIndex = null;
+        if (sortOption == null && minPrice == null) {
+            int start = productList.size();
+            productList.addAll(page);
+            adapter.notifyItemRangeInserted(start, page.size());
+        } else {
+            applyFilterAndSort();
+        }
+    }
+
+    /**
+     * Runs the action once the whole category is loaded. Sorting and price filtering need
+     * every product, so the rest of the category comes from the catalog in one go rather
+     * than page by page.
+     */
+    private void withAllProducts(Runnable action) {
+        if (!hasMorePages) {
+            pendingAction = null;
+            action.run();
+            return;
+        }
+        boolean loading = pendingAction != null;
+        pendingAction = action;
+        if (!loading) loadAllProducts();
+    }
+
     /**
      * Shows a popup menu with sorting options (price, name).
      * Uses the selected menu item to sort the list accordingly.
@@ -131,12 +239,15 @@ public class ListActivity extends BaseActivity<ActivityListBinding> {
     private void showSortMenu(View anchor) {
         PopupMenu popup = new PopupMenu(this, anchor);
         popup.getMenuInflater().inflate(R.menu.menu_sort, popup.getMenu());
+        popup.getMenu().removeItem(R.id.sort_relevance); // No query to rank against here
 
         popup.setOnMenuItemClickListener(item -> {
             SortOption option = SortOption.fromMenuId(item.getItemId());
             if (option != null) {
-                productList.sort(option.comparator);
-                adapter.notifyDataSetChanged();
+                withAllProducts(() -> {
+                    sortOption = option;
+                    applyFilterAndSort();
+                });
                 return true;
             }
             return false;
@@ -145,6 +256,62 @@ public class ListActivity extends BaseActivity<ActivityListBinding> {
         popup.show();
     }
 
+    /**
+     * Shows the price range picker spanning the loaded products' prices.
+     */
+    private void showPriceRangeDialog() {
+        PriceIndex priceIndex = getPriceIndex();
+        if (priceIndex.isEmpty()) return;
+        PriceRangeDialog.show(this, priceIndex.minPrice(), priceIndex.maxPrice(), minPrice, maxPrice,
+                this::setPriceRange);
+    }
+
+    /**
+     * Applies the price range (null clears it) and labels the list with it while it is set.
+     */
+    private void setPriceRange(Double min, Double max) {
+        minPrice = min;
+        maxPrice = max;
+        if (min != null) {
+            binding.btnClearPrice.setText("Price: " + PriceRangeDialog.format(min, max));
+            binding.btnClearPrice.setVisibility(View.VISIBLE);
+        } else {
+            binding.btnClearPrice.setVisibility(View.GONE);
+        }
+        applyFilterAndSort();
+    }
+
+    /**
+     * Rebuilds the visible rows from the loaded products.
+     * The price range is two binary searches on the price index, and price sorts
+     * are read straight out of it instead of re-sorting the list.
+     */
+    private void applyFilterAndSort() {
+        PriceIndex priceIndex = getPriceIndex();
+        BitSet selected = new BitSet(allProducts.size());
+        if (minPrice != null) {
+            selected = priceIndex.range(minPrice, maxPrice);
+        } else {
+            selected.set(0, allProducts.size());
+        }
+
+        productList.clear();
+        if (sortOption == SortOption.PRICE_ASC || sortOption == SortOption.PRICE_DESC) {
+            priceIndex.appendInPriceOrder(allProducts, selected, sortOption == SortOption.PRICE_ASC, productList);
+        } else {
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                productList.add(allProducts.get(i));
+            }
+            if (sortOption != null) productList.sort(sortOption.comparator);
+        }
+        adapter.notifyDataSetChanged();
+    }
+
+    private PriceIndex getPriceIndex() {
+        if (priceIndex == null) priceIndex = PriceIndex.of(allProducts);
+        return priceIndex;
+    }
+
     private void showToast(String message) {
         ToastUtils.showCustomToast(this, message);
     }
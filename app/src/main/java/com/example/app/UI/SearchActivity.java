@@ -4,13 +4,13 @@
 package com.example.app.UI;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.KeyEvent;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
@@ -27,17 +27,24 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.app.R;
 import com.example.app.Adapters.RecentSearchAdapter;
 import com.example.app.Adapters.ProductAdapter;
+import com.example.app.Adapters.SuggestionAdapter;
 import com.example.app.Model.TableTennisProduct;
 import com.example.app.databinding.ActivitySearchBinding;
 import com.example.app.Data.FirestoreRepository;
+import com.example.app.Data.RecentSearchStore;
+import com.example.app.Search.FacetCounts;
+import com.example.app.Search.HighlightedText;
+import com.example.app.Search.PriceIndex;
+import com.example.app.Util.PriceRangeDialog;
 import com.example.app.Util.ToastUtils;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -45,13 +52,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * managing recent searches, and providing filtering and sorting capabilities.
  */
 public class SearchActivity extends BaseActivity<ActivitySearchBinding>
-        implements RecentSearchAdapter.OnSearchClickListener {
+        implements RecentSearchAdapter.OnSearchClickListener, SuggestionAdapter.OnSuggestionClickListener {
 
     // Constants for logging and preferences
     private static final String TAG = "SearchActivity";
-    private static final String PREFS_NAME = "SearchPrefs";
-    private static final String RECENT_SEARCHES_KEY = "recentSearches";
+    private static final int MAX_RECENT_SEARCHES = 10;
     private static final long DEBOUNCE_DELAY = 300;
+    private static final int MAX_SUGGESTIONS = 5;
+    private static final int MAX_TAG_FILTERS = 5;
 
     // UI components
     private EditText searchEditText;
@@ -59,13 +67,27 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
     private RecyclerView recentSearchesRecyclerView;
     private TextView clearHistoryButton;
     private RecyclerView searchResultsRecyclerView;
+    private RecyclerView suggestionsRecyclerView;
 
     // Adapters
     private RecentSearchAdapter recentSearchAdapter;
     private ProductAdapter searchResultAdapter;
+    private SuggestionAdapter suggestionAdapter;
 
-    // Shared preferences and search logic
-    private SharedPreferences prefs;
+    // Last query the user explicitly submitted, suggestions are not shown for it
+    private String submittedQuery;
+
+    // Identifies the latest search so late answers to older ones are ignored
+    private int searchRequestId;
+
+    // Query of the latest search, typing that only extends it is answered right away
+    private String lastSearchedQuery;
+
+    // Query the shown results are highlighted for, the corrected one if the results are for that
+    private String highlightedQuery;
+
+    // Search history and search logic
+    private RecentSearchStore recentSearchStore;
     private final Handler handler = new Handler(Looper.getMainLooper());
     private final AtomicBoolean isProcessing = new AtomicBoolean(false);
     private Runnable pendingAction;
@@ -74,9 +96,17 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
     private final List<TableTennisProduct> fullResults = new ArrayList<>();
     private final List<TableTennisProduct> filteredResults = new ArrayList<>();
 
+    // Category/tag facets of fullResults, rebuilt whenever new results arrive
+    private FacetCounts facets = FacetCounts.of(fullResults);
+
+    // Price order of fullResults, backs the price range filter and price sorting
+    private PriceIndex priceIndex = PriceIndex.of(fullResults);
+
     // Filter/sort settings
     private String selectedCategory = "all";
-    private String sortField = "name";
+    private String selectedTag;
+    private Double minPrice, maxPrice; // Null when no price range is set
+    private String sortField = "relevance";
     private boolean sortAscending = true;
 
     private View noResultsContainer;
@@ -100,6 +130,7 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         try {
             bindViews();
             setupRecentSearchesList();
+            setupSuggestionsList();
             setupSearchResultsList();
             setupClickListeners();
             loadRecentSearches();
@@ -111,6 +142,8 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         // Sort & Filter menu setup
         binding.btnSort.setOnClickListener(this::showSortMenu);
         binding.btnFilter.setOnClickListener(this::showFilterMenu);
+        binding.btnPrice.setOnClickListener(v -> showPriceRangeDialog());
+        binding.btnClearPrice.setOnClickListener(v -> setPriceRange(null, null));
 
         // If launched with query from MainActivity
         String initialQuery = getIntent().getStringExtra("searchQuery");
@@ -129,7 +162,8 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         recentSearchesRecyclerView = binding.recentSearchesRecyclerView;
         clearHistoryButton = binding.clearHistoryButton;
         searchResultsRecyclerView = binding.searchResultsRecyclerView;
-        prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        suggestionsRecyclerView = binding.suggestionsRecyclerView;
+        recentSearchStore = RecentSearchStore.getInstance(this);
 
         // No search results
         noResultsContainer = binding.noResultsContainer;
@@ -145,6 +179,13 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         recentSearchesRecyclerView.setAdapter(recentSearchAdapter);
     }
 
+    // Autocomplete suggestions shown while typing
+    private void setupSuggestionsList() {
+        suggestionAdapter = new SuggestionAdapter(this);
+        suggestionsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        suggestionsRecyclerView.setAdapter(suggestionAdapter);
+    }
+
     // RecyclerView setup for displaying results
     private void setupSearchResultsList() {
         searchResultAdapter = new ProductAdapter(this, filteredResults);
@@ -159,6 +200,8 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
             }
         });
 
+        searchResultAdapter.setHighlighter(this::highlightResults);
+
         searchResultsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         searchResultsRecyclerView.setAdapter(searchResultAdapter);
     }
@@ -166,10 +209,12 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
     // Handles all interactive logic
     private void setupClickListeners() {
         clearButton.setOnClickListener(v -> {
+            cancelSearch();
             searchEditText.setText("");
             filteredResults.clear();
             searchResultAdapter.notifyDataSetChanged();
             hideSearchResults();
+            hideSuggestions();
             showRecentSearchesContainer();
         });
 
@@ -184,11 +229,13 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
             if (isSearchAction) {
                 String queryText = searchEditText.getText().toString().trim();
                 if (!queryText.isEmpty()) {
+                    submittedQuery = queryText;
                     debounce(() -> {
                         addToRecentSearches(queryText);
                         searchProducts(queryText);
                     });
                 }
+                hideSuggestions();
                 hideRecentSearchesContainer();
                 return true;
             }
@@ -204,17 +251,55 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
             public void afterTextChanged(Editable s) {
                 String queryText = s.toString().trim();
                 if (!queryText.isEmpty()) {
-                    debounce(() -> searchProducts(queryText));
+                    updateSuggestions(queryText);
+                    if (isRefinement(queryText)) {
+                        // Narrowing the previous results in memory is cheap, no need to wait
+                        handler.removeCallbacks(pendingAction);
+                        searchProducts(queryText);
+                    } else {
+                        debounce(() -> searchProducts(queryText));
+                    }
                 } else {
+                    cancelSearch();
                     filteredResults.clear();
                     searchResultAdapter.notifyDataSetChanged();
                     hideSearchResults();
+                    hideSuggestions();
                     showRecentSearchesContainer();
                 }
             }
         });
     }
 
+    // Suggestions come from the local index, so they run on every keystroke without debouncing
+    private void updateSuggestions(String prefix) {
+        FirestoreRepository.getInstance().getSearchSuggestions(prefix, MAX_SUGGESTIONS,
+                new FirestoreRepository.SuggestionsCallback() {
+                    @Override
+                    public void onSuccess(List<String> suggestions) {
+                        // Ignore answers for text the user has already changed or submitted
+                        String current = searchEditText.getText().toString().trim();
+                        if (!prefix.equals(current) || prefix.equals(submittedQuery)) return;
+
+                        suggestionAdapter.setSuggestions(suggestions);
+                        if (suggestions.isEmpty()) {
+                            hideSuggestions();
+                        } else {
+                            suggestionsRecyclerView.setVisibility(View.VISIBLE);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        android.util.Log.e(TAG, "Error loading suggestions", e);
+                    }
+                });
+    }
+
+    private void hideSuggestions() {
+        suggestionsRecyclerView.setVisibility(View.GONE);
+    }
+
     private void debounce(Runnable action) {
         if (isProcessing.get()) return;
         handler.removeCallbacks(pendingAction);
@@ -229,40 +314,48 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         handler.postDelayed(pendingAction, DEBOUNCE_DELAY);
     }
 
+    // History is read in the background and shown by frecency once it is ready
     private void loadRecentSearches() {
-        String json = prefs.getString(RECENT_SEARCHES_KEY, null);
-        List<String> searches = new ArrayList<>();
-        if (json != null) {
-            Type type = new TypeToken<List<String>>() {}.getType();
-            List<String> saved = new Gson().fromJson(json, type);
-            if (saved != null) {
-                searches = saved;
-            }
-        }
-        recentSearchAdapter.setSearches(searches);
-    }
-
-    private void saveRecentSearches(List<String> searches) {
-        String json = new Gson().toJson(searches);
-        prefs.edit().putString(RECENT_SEARCHES_KEY, json).apply();
+        recentSearchStore.getTopSearches(MAX_RECENT_SEARCHES, searches -> {
+            if (!isFinishing()) recentSearchAdapter.setSearches(searches);
+        });
     }
 
     private void addToRecentSearches(String query) {
-        recentSearchAdapter.addSearch(query);
-        saveRecentSearches(recentSearchAdapter.getSearches());
+        recentSearchStore.record(query);
+        loadRecentSearches();
     }
 
     private void clearSearchHistory() {
         recentSearchAdapter.setSearches(new ArrayList<>());
-        saveRecentSearches(new ArrayList<>());
+        recentSearchStore.clear();
+    }
+
+    // True if the query only adds characters to the end of the previous search
+    private boolean isRefinement(String query) {
+        return lastSearchedQuery != null && !fullResults.isEmpty()
+                && query.length() > lastSearchedQuery.length()
+                && query.toLowerCase(Locale.ROOT).startsWith(lastSearchedQuery.toLowerCase(Locale.ROOT));
     }
 
     private void searchProducts(String query) {
-        FirestoreRepository.getInstance().searchProducts(query, new FirestoreRepository.ProductsCallback() {
+        int requestId = ++searchRequestId;
+        lastSearchedQuery = query;
+        FirestoreRepository.getInstance().searchProducts(query, new FirestoreRepository.SearchCallback() {
             @Override
-            public void onSuccess(List<TableTennisProduct> products) {
+            public void onSuccess(List<TableTennisProduct> products, Map<String, HighlightedText> highlights,
+                                  String correctedQuery) {
+                if (requestId != searchRequestId) return; // A newer search has started
+
+                showCorrection(correctedQuery);
+                highlightedQuery = correctedQuery != null ? correctedQuery : query;
+                searchResultAdapter.setHighlights(highlights);
+
                 fullResults.clear();
                 fullResults.addAll(products);
+                facets = FacetCounts.of(fullResults);
+                priceIndex = PriceIndex.of(fullResults);
+                selectedTag = null; // Tag choices come from the results themselves
                 binding.sortFilterContainer.setVisibility(View.VISIBLE);
 
                 if (products.isEmpty()) {
@@ -275,6 +368,7 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
 
             @Override
             public void onError(Exception e) {
+                if (requestId != searchRequestId) return;
                 android.util.Log.e(TAG, "Error searching products", e);
                 // Show custom toast for search errors
                 ToastUtils.showCustomToast(SearchActivity.this, "Error searching products. Please try again.");
@@ -282,13 +376,55 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         });
     }
 
+    // "Did you mean" banner, shown when the results are for a corrected spelling
+    private void showCorrection(String correctedQuery) {
+        if (correctedQuery == null) {
+            binding.correctionText.setVisibility(View.GONE);
+            return;
+        }
+        binding.correctionText.setText("Showing results for \"" + correctedQuery + "\"");
+        binding.correctionText.setVisibility(View.VISIBLE);
+    }
+
+    // Highlights result rows scrolled into view beyond the first ones the search came back with
+    private void highlightResults(List<TableTennisProduct> products) {
+        int requestId = searchRequestId;
+        FirestoreRepository.getInstance().highlightSearchResults(highlightedQuery, products,
+                new FirestoreRepository.HighlightsCallback() {
+                    @Override
+                    public void onSuccess(Map<String, HighlightedText> highlights) {
+                        if (requestId == searchRequestId) searchResultAdapter.addHighlights(highlights);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        android.util.Log.e(TAG, "Error highlighting results", e);
+                    }
+                });
+    }
+
+    // Invalidates the search in flight so its results never reach the list
+    private void cancelSearch() {
+        searchRequestId++;
+        lastSearchedQuery = null;
+        showCorrection(null);
+        handler.removeCallbacks(pendingAction);
+        FirestoreRepository.getInstance().cancelSearches();
+    }
+
     private void applyFilterAndSort() {
+        // Intersect the selected facets instead of re-walking every result
+        BitSet selected = facets.categoryPositions(selectedCategory);
+        if (selectedTag != null) selected.and(facets.tagPositions(selectedTag));
+        if (minPrice != null) selected.and(priceIndex.range(minPrice, maxPrice));
+
         filteredResults.clear();
-        for (TableTennisProduct product : fullResults) {
-            String cat = product.getCategoryID();
-            if ("all".equals(selectedCategory) ||
-                    (cat != null && cat.equalsIgnoreCase(selectedCategory))) {
-                filteredResults.add(product);
+        if ("price".equals(sortField)) {
+            // The price index already holds the results in price order
+            priceIndex.appendInPriceOrder(fullResults, selected, sortAscending, filteredResults);
+        } else {
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                filteredResults.add(fullResults.get(i));
             }
         }
 
@@ -301,15 +437,12 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         noResultsContainer.setVisibility(View.GONE);
         showSearchResults();
 
-        Comparator<TableTennisProduct> comparator = ("price".equals(sortField))
-                ? Comparator.comparingDouble(TableTennisProduct::getPrice)
-                : Comparator.comparing(TableTennisProduct::getName, String.CASE_INSENSITIVE_ORDER);
-
-        if (!sortAscending) {
-            comparator = comparator.reversed();
+        // Relevance keeps the order results arrived in
+        if ("name".equals(sortField)) {
+            Comparator<TableTennisProduct> comparator =
+                    Comparator.comparing(TableTennisProduct::getName, String.CASE_INSENSITIVE_ORDER);
+            filteredResults.sort(sortAscending ? comparator : comparator.reversed());
         }
-
-        filteredResults.sort(comparator);
         searchResultAdapter.notifyDataSetChanged();
     }
 
@@ -327,7 +460,8 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
 
         popup.setOnMenuItemClickListener(item -> {
             int id = item.getItemId();
-            if (id == R.id.sort_price_asc) sortList("price", true);
+            if (id == R.id.sort_relevance) sortList("relevance", true);
+            else if (id == R.id.sort_price_asc) sortList("price", true);
             else if (id == R.id.sort_price_desc) sortList("price", false);
             else if (id == R.id.sort_name_asc) sortList("name", true);
             else if (id == R.id.sort_name_desc) sortList("name", false);
@@ -339,14 +473,37 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
 
     private void showFilterMenu(View anchor) {
         PopupMenu popup = new PopupMenu(this, anchor);
-        popup.getMenuInflater().inflate(R.menu.menu_filter, popup.getMenu());
+        Menu menu = popup.getMenu();
+        popup.getMenuInflater().inflate(R.menu.menu_filter, menu);
+
+        // Show how many results each choice would leave
+        addFacetCount(menu.findItem(R.id.filter_all), facets.size());
+        addFacetCount(menu.findItem(R.id.filter_bats), facets.categoryCount("bats"));
+        addFacetCount(menu.findItem(R.id.filter_balls), facets.categoryCount("balls"));
+        addFacetCount(menu.findItem(R.id.filter_tables), facets.categoryCount("tables"));
+
+        // Most common tags in the current results
+        Map<MenuItem, String> tagItems = new HashMap<>();
+        for (String tag : facets.topTags(MAX_TAG_FILTERS)) {
+            String label = "#" + tag + " (" + facets.tagCount(tag) + ")";
+            tagItems.put(menu.add(Menu.NONE, Menu.NONE, Menu.NONE, label), tag);
+        }
 
         popup.setOnMenuItemClickListener(item -> {
             int id = item.getItemId();
-            if (id == R.id.filter_all) selectedCategory = "all";
-            else if (id == R.id.filter_bats) selectedCategory = "bats";
-            else if (id == R.id.filter_balls) selectedCategory = "balls";
-            else if (id == R.id.filter_tables) selectedCategory = "tables";
+            if (tagItems.containsKey(item)) {
+                String tag = tagItems.get(item);
+                selectedTag = tag.equals(selectedTag) ? null : tag; // Tapping again clears it
+            } else if (id == R.id.filter_all) {
+                selectedCategory = "all";
+                selectedTag = null;
+            } else if (id == R.id.filter_bats) {
+                selectedCategory = "bats";
+            } else if (id == R.id.filter_balls) {
+                selectedCategory = "balls";
+            } else if (id == R.id.filter_tables) {
+                selectedCategory = "tables";
+            }
             applyFilterAndSort();
             return true;
         });
@@ -354,12 +511,40 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         popup.show();
     }
 
+    private void showPriceRangeDialog() {
+        if (priceIndex.isEmpty()) return;
+        PriceRangeDialog.show(this, priceIndex.minPrice(), priceIndex.maxPrice(), minPrice, maxPrice,
+                this::setPriceRange);
+    }
+
+    /**
+     * Applies the price range, or clears it when null, and shows it above the results
+     * so a range kept from earlier is never silently narrowing them.
+     */
+    private void setPriceRange(Double min, Double max) {
+        minPrice = min;
+        maxPrice = max;
+        if (min != null) {
+            binding.btnClearPrice.setText("Price: " + PriceRangeDialog.format(min, max));
+            binding.btnClearPrice.setVisibility(View.VISIBLE);
+        } else {
+            binding.btnClearPrice.setVisibility(View.GONE);
+        }
+        if (!fullResults.isEmpty()) applyFilterAndSort();
+    }
+
+    private void addFacetCount(MenuItem item, int count) {
+        item.setTitle(item.getTitle() + " (" + count + ")");
+    }
+
     private void performSearch(String query) {
         if (query == null || query.trim().isEmpty()) return;
+        submittedQuery = query.trim();
         searchEditText.setText(query);
         searchEditText.setSelection(query.length());
         addToRecentSearches(query);
         searchProducts(query);
+        hideSuggestions();
         hideRecentSearchesContainer();
     }
 
@@ -395,15 +580,20 @@ public class SearchActivity extends BaseActivity<ActivitySearchBinding>
         performSearch(search);
     }
 
+    @Override
+    public void onSuggestionClick(String suggestion) {
+        performSearch(suggestion);
+    }
+
     @Override
     public void onSearchRemove(String search) {
-        debounce(() -> saveRecentSearches(recentSearchAdapter.getSearches()));
+        recentSearchStore.remove(search);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        handler.removeCallbacks(pendingAction);
+        cancelSearch();
     }
 
     private void showNoResultsView() {
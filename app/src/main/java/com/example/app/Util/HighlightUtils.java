@@ -0,0 +1,31 @@
+package com.example.app.Util;
+
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+/**
+ * Builds styled text for search match highlighting.
+ * Safe to call off the main thread: it only creates spans, it never touches views.
+ */
+public class HighlightUtils {
+
+    /**
+     * Returns the text with the given start/end ranges in bold,
+     * or the plain text if there is nothing to highlight.
+     */
+    public static CharSequence bold(String text, int[] ranges) {
+        if (text == null || ranges.length == 0) return text;
+
+        SpannableString spannable = new SpannableString(text);
+        for (int i = 0; i + 1 < ranges.length; i += 2) {
+            int start = Math.min(ranges[i], text.length());
+            int end = Math.min(ranges[i + 1], text.length());
+            if (start < end) {
+                spannable.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        return spannable;
+    }
+}
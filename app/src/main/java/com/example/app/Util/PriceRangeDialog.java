@@ -0,0 +1,74 @@
+package com.example.app.Util;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+
+import com.example.app.R;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.google.android.material.slider.RangeSlider;
+
+import java.util.List;
+
+/**
+ * Utility class that shows a min/max price picker shared by the list and search screens.
+ */
+public class PriceRangeDialog {
+
+    /**
+     * Callback for the chosen range. A null range means the price filter was cleared.
+     */
+    public interface OnPriceRangeSelectedListener {
+        void onPriceRangeSelected(Double min, Double max);
+    }
+
+    /**
+     * Shows a slider spanning [lowest, highest], starting at the currently selected range.
+     */
+    public static void show(Context context, double lowest, double highest,
+                            Double currentMin, Double currentMax,
+                            OnPriceRangeSelectedListener listener) {
+        float from = (float) Math.floor(lowest);
+        float to = (float) Math.ceil(highest);
+        if (to <= from) to = from + 1; // Slider needs a non-empty range
+
+        View view = LayoutInflater.from(context).inflate(R.layout.dialog_price_range, null);
+        TextView label = view.findViewById(R.id.textPriceRange);
+        RangeSlider slider = view.findViewById(R.id.sliderPriceRange);
+
+        slider.setValueFrom(from);
+        slider.setValueTo(to);
+        slider.setValues(
+                clamp(currentMin != null ? currentMin.floatValue() : from, from, to),
+                clamp(currentMax != null ? currentMax.floatValue() : to, from, to));
+        updateLabel(label, slider.getValues());
+        slider.addOnChangeListener((s, value, fromUser) -> updateLabel(label, s.getValues()));
+
+        new MaterialAlertDialogBuilder(context)
+                .setTitle("Price range")
+                .setView(view)
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    List<Float> values = slider.getValues();
+                    listener.onPriceRangeSelected((double) values.get(0), (double) values.get(1));
+                })
+                .setNeutralButton("Reset", (dialog, which) -> listener.onPriceRangeSelected(null, null))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Formats a price range the way the picker shows it, for labelling an applied filter.
+     */
+    public static String format(double min, double max) {
+        return String.format("$%.2f - $%.2f", min, max);
+    }
+
+    private static float clamp(float value, float from, float to) {
+        return Math.max(from, Math.min(to, value));
+    }
+
+    private static void updateLabel(TextView label, List<Float> values) {
+        label.setText(format(values.get(0), values.get(1)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static com.example.app.Search.ProductSearchIndexTest.names;
+import static com.example.app.Search.ProductSearchIndexTest.randomCatalog;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Local unit tests for writing and reading back IndexSnapshot files.
+ */
+public class IndexSnapshotTest {
+    private static final String[] QUERIES = {
+            "butterfly", "table tennis", "ping pong", "bat", "3-star balls", "stiga c", "rubbr", "cat2 under 200"
+    };
+
+    @Test
+    public void roundTripKeepsProductsRemovalsAndWatermark() throws IOException {
+        ProductSearchIndex index = ProductSearchIndex.build(randomCatalog(100, 7), synonyms());
+        index.remove("p3");
+        index.remove("p50");
+        index.setSyncedThrough(1_700_000_000_000L);
+        index.getProduct("p10").setRandomKey(0.25);
+
+        ProductSearchIndex restored = roundTrip(index);
+
+        assertEquals(1_700_000_000_000L, restored.getSyncedThrough());
+        assertEquals(names(index.getProducts()), names(restored.getProducts()));
+        assertNull(restored.getProduct("p3"));
+        TableTennisProduct before = index.getProduct("p10");
+        TableTennisProduct after = restored.getProduct("p10");
+        assertEquals(before.getName(), after.getName());
+        assertEquals(before.getDescription(), after.getDescription());
+        assertEquals(before.getPrice(), after.getPrice(), 0);
+        assertEquals(before.getTags(), after.getTags());
+        assertEquals(0.25, after.getRandomKey(), 0);
+        assertEquals(before.isDeleted(), after.isDeleted());
+    }
+
+    @Test
+    public void restoredIndexSearchesLikeTheOriginal() throws IOException {
+        ProductSearchIndex index = ProductSearchIndex.build(randomCatalog(200, 11), synonyms());
+        index.remove("p7");
+        ProductSearchIndex restored = roundTrip(index);
+
+        for (String query : QUERIES) {
+            assertEquals(query, names(index.search(query)), names(restored.search(query)));
+        }
+    }
+
+    @Test
+    public void unrecognisedFileIsRejected() throws IOException {
+        File file = Files.createTempFile("index", ".snapshot").toFile();
+        try {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write("not a snapshot".getBytes(StandardCharsets.UTF_8));
+            }
+            IndexSnapshot.read(file, SynonymTable.EMPTY);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unrecognised index snapshot"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static ProductSearchIndex roundTrip(ProductSearchIndex index) throws IOException {
+        File file = Files.createTempFile("index", ".snapshot").toFile();
+        try {
+            IndexSnapshot.write(index, file);
+            return IndexSnapshot.read(file, synonyms());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static SynonymTable synonyms() throws IOException {
+        return SynonymTable.parse(new StringReader("bat, paddle, racket\ntable tennis, ping pong\n"));
+    }
+}
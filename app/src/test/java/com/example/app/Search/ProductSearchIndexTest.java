@@ -0,0 +1,121 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for ProductSearchIndex, run on the development machine.
+ */
+public class ProductSearchIndexTest {
+    private static final String[] WORDS = {
+            "butterfly", "stiga", "carbon", "blade", "bat", "ball", "balls", "table", "tennis",
+            "ping", "pong", "rubber", "case", "cover", "3-star", "net", "indoor", "outdoor", "c", "pro"
+    };
+
+    @Test
+    public void searchMatchesNameDescriptionAndTags() {
+        ProductSearchIndex index = ProductSearchIndex.build(Arrays.asList(
+                product("b1", "Stiga Carbon Blade", "fast offensive blade", "blades", 120),
+                product("r1", "Tenergy 05", "butterfly rubber with spring sponge", "rubbers", 80),
+                product("n1", "Clip Net", "indoor net and post set", "nets", 25)));
+        assertEquals(Arrays.asList("b1"), names(index.search("carbon")));
+        assertEquals(Arrays.asList("r1"), names(index.search("butterfly")));
+        assertEquals(Arrays.asList("n1"), names(index.search("nets")));
+        assertEquals(Arrays.asList("r1"), names(index.search("Tenergy")));
+        assertTrue(index.search("racket").isEmpty());
+    }
+
+    @Test
+    public void removedAndReplacedProductsAreFoundByTheirNewText() {
+        ProductSearchIndex index = ProductSearchIndex.build(randomCatalog(50, 1));
+        index.add(product("new", "Outdoor Table", "weatherproof table", "tables", 400));
+        assertTrue(names(index.search("weatherproof")).contains("new"));
+
+        index.remove("new");
+        assertTrue(index.search("weatherproof").isEmpty());
+
+        index.add(product("new", "Outdoor Cover", "rain cover", "covers", 30));
+        assertEquals(Arrays.asList("new"), names(index.search("rain")));
+    }
+
+    @Test
+    public void refinedQueriesMatchFreshIndex() {
+        List<TableTennisProduct> catalog = randomCatalog(200, 42);
+        ProductSearchIndex index = ProductSearchIndex.build(catalog);
+        String[] typed = {"- c", "-", "table tennis", "butterfly bat", "3-star balls", "c-", "pro c", " ping"};
+        for (String text : typed) {
+            for (int i = 1; i <= text.length(); i++) {
+                String query = text.substring(0, i);
+                assertEquals(query, names(ProductSearchIndex.build(catalog).search(query)), names(index.search(query)));
+            }
+        }
+    }
+
+    @Test
+    public void categoryPagesWalkTheCategoryInIdOrder() {
+        ProductSearchIndex index = ProductSearchIndex.build(randomCatalog(200, 5));
+        index.remove("p17");
+        index.add(product("p17", "Moved Blade", "now in another category", "cat9", 50));
+
+        for (String category : new String[] {"cat1", "CAT2", "cat9"}) {
+            List<String> expected = names(index.getProductsInCategory(category));
+            expected.sort(null);
+
+            List<String> paged = new ArrayList<>();
+            String after = null;
+            List<TableTennisProduct> page;
+            do {
+                page = index.getCategoryPage(category, after, 7);
+                paged.addAll(names(page));
+                if (!page.isEmpty()) after = page.get(page.size() - 1).getId();
+            } while (page.size() == 7);
+            assertEquals(category, expected, paged);
+        }
+        assertTrue(index.getCategoryPage("missing", null, 7).isEmpty());
+    }
+
+    static List<TableTennisProduct> randomCatalog(int size, long seed) {
+        Random random = new Random(seed);
+        List<TableTennisProduct> products = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            products.add(product("p" + i, words(random, 3), words(random, 8), "cat" + random.nextInt(4),
+                    random.nextInt(500)));
+        }
+        return products;
+    }
+
+    static TableTennisProduct product(String id, String name, String description, String category, double price) {
+        TableTennisProduct product = new TableTennisProduct();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setCategoryID(category);
+        product.setPrice(price);
+        product.setTags(Arrays.asList(category));
+        return product;
+    }
+
+    static List<String> names(List<TableTennisProduct> products) {
+        List<String> ids = new ArrayList<>();
+        for (TableTennisProduct product : products) ids.add(product.getId());
+        return ids;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(random.nextInt(5) == 0 ? " - " : " ");
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
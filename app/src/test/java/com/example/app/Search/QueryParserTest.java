@@ -0,0 +1,91 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.app.Search.ProductSearchIndexTest.names;
+import static com.example.app.Search.ProductSearchIndexTest.product;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Local unit tests for QueryParser and constrained searches.
+ */
+public class QueryParserTest {
+    private QueryParser parser;
+
+    @Before
+    public void setUp() throws IOException {
+        Map<String, String> categories = new HashMap<>();
+        categories.put("bat", "bats");
+        categories.put("ball", "balls");
+        categories.put("table", "tables");
+        parser = new QueryParser(categories,
+                SynonymTable.parse(new StringReader("table tennis, ping pong, pingpong\n")));
+    }
+
+    @Test
+    public void parsesPriceForms() {
+        assertQuery(parser.parse("bats under 100"), "", "bats", null, 100.0);
+        assertQuery(parser.parse("below $50"), "", null, null, 50.0);
+        assertQuery(parser.parse("over 200"), "", null, 200.0, null);
+        assertQuery(parser.parse("tables 200-500"), "", "tables", 200.0, 500.0);
+        assertQuery(parser.parse("100 to 300 stiga"), "stiga", null, 100.0, 300.0);
+        assertQuery(parser.parse("between 40 and 20"), "", null, 20.0, 40.0);
+        assertQuery(parser.parse("from 10"), "", null, 10.0, null);
+    }
+
+    @Test
+    public void categoryWordAloneStaysText() {
+        assertQuery(parser.parse("balls"), "balls", null, null, null);
+        assertFalse(parser.parse("balls").hasConstraints());
+    }
+
+    @Test
+    public void categoryWordNextToOtherWordsFilters() {
+        assertQuery(parser.parse("butterfly bats"), "butterfly", "bats", null, null);
+        assertQuery(parser.parse("3-star balls"), "3-star", "balls", null, null);
+    }
+
+    @Test
+    public void categoryWordInsideSynonymPhraseStaysText() {
+        assertQuery(parser.parse("table tennis"), "table tennis", null, null, null);
+        assertQuery(parser.parse("table tennis bats"), "table tennis", "bats", null, null);
+        assertQuery(parser.parse("table tennis under 50"), "table tennis", null, null, 50.0);
+    }
+
+    @Test
+    public void textNumbersAreNotPrices() {
+        assertQuery(parser.parse("nittaku 3-star"), "nittaku 3-star", null, null, null);
+        assertQuery(parser.parse("tenergy 05"), "tenergy 05", null, null, null);
+    }
+
+    @Test
+    public void categoryFilterThatFindsNothingFallsBackToText() {
+        List<TableTennisProduct> products = Arrays.asList(
+                product("t1", "DHS Table", "indoor table", "tables", 450),
+                product("b1", "Butterfly Bat", "bat for table practice", "bats", 120),
+                product("r1", "Ball Robot", "throws balls at butterfly speed", "robots", 300),
+                product("x1", "Ball", "plain ball", "balls", 5));
+        ProductSearchIndex index = ProductSearchIndex.build(products);
+        assertEquals(Arrays.asList("b1"), names(index.search("butterfly bats")));
+        assertEquals(Arrays.asList("r1"), names(index.search("butterfly balls")));
+        assertEquals(Arrays.asList("t1"), names(index.search("tables under 500 indoor")));
+    }
+
+    private static void assertQuery(ParsedQuery parsed, String text, String category, Double min, Double max) {
+        assertEquals(text, parsed.text);
+        assertEquals(category, parsed.category);
+        assertEquals(min, parsed.minPrice);
+        assertEquals(max, parsed.maxPrice);
+    }
+}
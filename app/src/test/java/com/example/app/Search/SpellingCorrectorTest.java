@@ -0,0 +1,57 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.app.Search.ProductSearchIndexTest.product;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local unit tests for SpellingCorrector and the index's "did you mean".
+ */
+public class SpellingCorrectorTest {
+
+    @Test
+    public void correctsWithinEditDistance() {
+        SpellingCorrector corrector = new SpellingCorrector();
+        corrector.add("butterfly", 3);
+        corrector.add("rubber", 5);
+        corrector.add("bat", 2);
+        assertEquals("butterfly", corrector.correct("butterfyl")); // transposition
+        assertEquals("butterfly", corrector.correct("buterfy"));   // two deletions
+        assertEquals("rubber", corrector.correct("rubbr"));
+        assertEquals("bat", corrector.correct("bta"));
+        assertNull(corrector.correct("xyz"));
+        assertNull("short words get one edit only", corrector.correct("bxx"));
+    }
+
+    @Test
+    public void prefersCommonerWordOnTies() {
+        SpellingCorrector corrector = new SpellingCorrector();
+        corrector.add("net", 1);
+        corrector.add("set", 1);
+        corrector.add("set", 4);
+        assertEquals("set", corrector.correct("aet"));
+    }
+
+    @Test
+    public void indexCorrectsNameWordsAndLearnsNewOnes() {
+        List<TableTennisProduct> products = new ArrayList<>(Arrays.asList(
+                product("1", "Butterfly Tenergy", "spinny rubber", "rubbers", 60),
+                product("2", "Stiga Clipper", "allround blade", "blades", 90)));
+        ProductSearchIndex index = ProductSearchIndex.build(products);
+        assertEquals("tenergy", index.correct("tenergi"));
+        assertEquals("clipper under 100", index.correct("clippr under 100"));
+        assertNull("nothing to correct", index.correct("stiga"));
+        assertNull("description words are not corrected to", index.correct("spinyy"));
+
+        index.add(product("3", "Nittaku Fastarc", "grippy rubber", "rubbers", 50));
+        assertEquals("fastarc", index.correct("fastrac"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.app.Search;
+
+import com.example.app.Model.TableTennisProduct;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.app.Search.ProductSearchIndexTest.names;
+import static com.example.app.Search.ProductSearchIndexTest.product;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for SynonymTable and how the index applies it.
+ */
+public class SynonymTableTest {
+    private static final String SYNONYMS = "# comment\n"
+            + "bat, paddle, racket\n"
+            + "table tennis, ping pong, pingpong\n";
+
+    private static List<TableTennisProduct> catalog() {
+        return Arrays.asList(
+                product("b1", "Stiga Paddle", "ping pong paddle for beginners", "gear", 40),
+                product("b2", "Butterfly Bat", "table tennis bat with carbon blade", "gear", 120),
+                product("l1", "Garden Table", "outdoor table", "tables", 300),
+                product("l2", "Pingpong Net", "clip-on net", "extras", 15));
+    }
+
+    @Test
+    public void multiWordPhraseIsNotIndexedAsItsWords() throws IOException {
+        ProductSearchIndex index = ProductSearchIndex.build(catalog(), table());
+        assertEquals(Arrays.asList("b2", "l1"), sorted(names(index.search("table"))));
+        assertEquals(Arrays.asList("b2"), names(index.search("tennis")));
+    }
+
+    @Test
+    public void phraseQueryFindsEveryPhraseOfTheGroup() throws IOException {
+        ProductSearchIndex index = ProductSearchIndex.build(catalog(), table());
+        List<String> results = names(index.search("table tennis"));
+        assertEquals("literal phrase ranks first", "b2", results.get(0));
+        assertEquals(Arrays.asList("b1", "b2", "l2"), sorted(results));
+        assertEquals(Arrays.asList("b1", "b2", "l2"), sorted(names(index.search("ping pong"))));
+    }
+
+    @Test
+    public void synonymHitsRankBelowLiteralHits() throws IOException {
+        ProductSearchIndex index = ProductSearchIndex.build(catalog(), table());
+        assertEquals(Arrays.asList("b2", "b1"), names(index.search("bat")));
+        assertEquals(Arrays.asList("b1", "b2"), names(index.search("paddle")));
+    }
+
+    @Test
+    public void phraseLengthAtFindsLongestPhrase() throws IOException {
+        SynonymTable synonyms = table();
+        List<String> words = TextAnalyzer.terms("cheap ping pong bats");
+        assertEquals(0, synonyms.phraseLengthAt(words, 0));
+        assertEquals(2, synonyms.phraseLengthAt(words, 1));
+        assertEquals(0, synonyms.phraseLengthAt(words, 3)); // single words are not phrases
+        assertTrue(SynonymTable.isPhraseKey(SynonymTable.key(words.subList(1, 3))));
+    }
+
+    private static SynonymTable table() throws IOException {
+        return SynonymTable.parse(new StringReader(SYNONYMS));
+    }
+
+    private static List<String> sorted(List<String> ids) {
+        ids.sort(null);
+        return ids;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.app.Search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests for TrigramIndex.
+ */
+public class TrigramIndexTest {
+    private static final String SEP = String.valueOf(TrigramIndex.FIELD_SEPARATOR);
+
+    @Test
+    public void matchesEqualSubstringScanForEveryQueryLength() {
+        Random random = new Random(3);
+        List<String> texts = new ArrayList<>();
+        TrigramIndex index = new TrigramIndex();
+        for (int doc = 0; doc < 300; doc++) {
+            String text = randomText(random, 6) + SEP + randomText(random, 12);
+            texts.add(text);
+            index.add(text);
+        }
+
+        for (int n = 1; n <= 5; n++) {
+            for (int q = 0; q < 200; q++) {
+                String query = randomText(random, 1).substring(0, 1);
+                while (query.length() < n) query += (char) ('a' + random.nextInt(6));
+                BitSet expected = new BitSet();
+                for (int doc = 0; doc < texts.size(); doc++) {
+                    if (texts.get(doc).contains(query)) expected.set(doc);
+                }
+                assertEquals(query, expected, index.matches(query));
+            }
+        }
+    }
+
+    @Test
+    public void gramsNeverSpanTwoFields() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("ab" + SEP + "cd");
+        assertEquals(new BitSet(), index.matches("bc"));
+        assertEquals(1, index.matches("cd").cardinality());
+    }
+
+    // Words over a small alphabet, so short queries hit many products and long ones few
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) text.append(' ');
+            int length = 2 + random.nextInt(6);
+            for (int j = 0; j < length; j++) text.append((char) ('a' + random.nextInt(6)));
+        }
+        return text.toString();
+    }
+}